@@ -0,0 +1,341 @@
+package cassandra;
+
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static io.netty.util.internal.PlatformDependent.newConcurrentHashMap;
+
+public class AdaptiveConcurrencyLimiter {
+
+    static interface Task {
+
+        void run();
+
+        void reject(Throwable cause);
+    }
+
+    private final ConcurrentMap<InetAddress, Limit> limits;
+    private int initialLimit;
+    private int minLimit;
+    private int maxLimit;
+    private double backoffRatio;
+    private double latencyTolerance;
+    private int maxQueueSize;
+    private long maxQueueNanos;
+
+    public AdaptiveConcurrencyLimiter() {
+        limits = newConcurrentHashMap();
+        initialLimit = 20;
+        minLimit = 1;
+        maxLimit = 1000;
+        backoffRatio = 0.9;
+        latencyTolerance = 2.0;
+        maxQueueSize = 1000;
+        maxQueueNanos = TimeUnit.MILLISECONDS.toNanos(CassandraFuture.DEADLINE);
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public AdaptiveConcurrencyLimiter setInitialLimit(int initialLimit) {
+        if (initialLimit <= 0) {
+            throw new IllegalArgumentException(String.format("initialLimit: %d (expected: > 0)", initialLimit));
+        }
+        this.initialLimit = initialLimit;
+        return this;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public AdaptiveConcurrencyLimiter setMinLimit(int minLimit) {
+        if (minLimit <= 0) {
+            throw new IllegalArgumentException(String.format("minLimit: %d (expected: > 0)", minLimit));
+        }
+        this.minLimit = minLimit;
+        return this;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public AdaptiveConcurrencyLimiter setMaxLimit(int maxLimit) {
+        if (maxLimit <= 0) {
+            throw new IllegalArgumentException(String.format("maxLimit: %d (expected: > 0)", maxLimit));
+        }
+        this.maxLimit = maxLimit;
+        return this;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public AdaptiveConcurrencyLimiter setBackoffRatio(double backoffRatio) {
+        if (backoffRatio <= 0.0 || backoffRatio >= 1.0) {
+            throw new IllegalArgumentException(String.format("backoffRatio: %f (expected: > 0.0 and < 1.0)", backoffRatio));
+        }
+        this.backoffRatio = backoffRatio;
+        return this;
+    }
+
+    public double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+
+    public AdaptiveConcurrencyLimiter setLatencyTolerance(double latencyTolerance) {
+        if (latencyTolerance < 1.0) {
+            throw new IllegalArgumentException(String.format("latencyTolerance: %f (expected: >= 1.0)", latencyTolerance));
+        }
+        this.latencyTolerance = latencyTolerance;
+        return this;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public AdaptiveConcurrencyLimiter setMaxQueueSize(int maxQueueSize) {
+        if (maxQueueSize < 0) {
+            throw new IllegalArgumentException(String.format("maxQueueSize: %d (expected: >= 0)", maxQueueSize));
+        }
+        this.maxQueueSize = maxQueueSize;
+        return this;
+    }
+
+    public long getMaxQueueTime(TimeUnit unit) {
+        return unit.convert(maxQueueNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public AdaptiveConcurrencyLimiter setMaxQueueTime(long maxQueueTime, TimeUnit unit) {
+        if (maxQueueTime <= 0) {
+            throw new IllegalArgumentException(String.format("maxQueueTime: %d (expected: > 0)", maxQueueTime));
+        }
+        maxQueueNanos = unit.toNanos(maxQueueTime);
+        return this;
+    }
+
+    public int getLimit(InetAddress endpoint) {
+        Limit limit = limits.get(endpoint);
+        return limit == null ? initialLimit : limit.limit();
+    }
+
+    public Map<InetAddress, Integer> getLimits() {
+        Map<InetAddress, Integer> snapshot = new LinkedHashMap<InetAddress, Integer>();
+        for (Map.Entry<InetAddress, Limit> e : limits.entrySet()) {
+            snapshot.put(e.getKey(), e.getValue().limit());
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    public int getInFlight(InetAddress endpoint) {
+        Limit limit = limits.get(endpoint);
+        return limit == null ? 0 : limit.inflight();
+    }
+
+    void execute(InetAddress endpoint, Task task) {
+        if (limit(endpoint).acquire(task)) {
+            task.run();
+        }
+    }
+
+    void release(InetAddress endpoint, long latencyNanos, Throwable cause) {
+        Limit limit = limits.get(endpoint);
+        if (limit == null) {
+            return;
+        }
+        Queue<Task> next = limit.release(latencyNanos, cause);
+        if (next != null) {
+            for (Task task : next) {
+                task.run();
+            }
+        }
+    }
+
+    private Limit limit(InetAddress endpoint) {
+        Limit limit = limits.get(endpoint);
+        if (limit == null) {
+            Limit newLimit = new Limit(endpoint);
+            limit = limits.putIfAbsent(endpoint, newLimit);
+            if (limit == null) {
+                limit = newLimit;
+            }
+        }
+        return limit;
+    }
+
+    private static boolean isOverload(Throwable cause) {
+        if (cause instanceof CassandraException) {
+            switch (((CassandraException)cause).code) {
+                case OVERLOADED:
+                case READ_TIMEOUT:
+                case WRITE_TIMEOUT:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        return cause instanceof TimeoutException;
+    }
+
+    private class Limit {
+
+        private static final int LATENCY_WINDOW = 500;
+
+        private final InetAddress endpoint;
+        private final Queue<Queued> queue;
+        private double limit;
+        private int inflight;
+        private long minLatency, nextMinLatency;
+        private int samples;
+        private long decreasedAt;
+
+        private Limit(InetAddress endpoint) {
+            this.endpoint = endpoint;
+            queue = new ArrayDeque<Queued>();
+            limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+            minLatency = Long.MAX_VALUE;
+            nextMinLatency = Long.MAX_VALUE;
+        }
+
+        private synchronized int limit() {
+            return (int)limit;
+        }
+
+        private synchronized int inflight() {
+            return inflight;
+        }
+
+        private boolean acquire(Task task) {
+            Throwable rejected = null;
+            synchronized (this) {
+                if (inflight < (int)limit) {
+                    inflight++;
+                    return true;
+                }
+                if (queue.size() < maxQueueSize) {
+                    final Queued queued = new Queued(task, System.nanoTime());
+                    queue.add(queued);
+                    queued.timeout = CassandraDriver.getGlobalEventExecutor().schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            expire(queued);
+                        }
+                    }, maxQueueNanos, TimeUnit.NANOSECONDS);
+                    return false;
+                }
+                rejected = new RejectedExecutionException(String.format("concurrency limit exceeded: %s (limit: %d, queued: %d)", endpoint, (int)limit, queue.size()));
+            }
+            task.reject(rejected);
+            return false;
+        }
+
+        private Queue<Task> release(long latencyNanos, Throwable cause) {
+            Queue<Task> expired = null;
+            Queue<Task> next = null;
+            synchronized (this) {
+                inflight--;
+                update(latencyNanos, cause);
+                long now = System.nanoTime();
+                while (inflight < (int)limit) {
+                    Queued queued = queue.poll();
+                    if (queued == null) {
+                        break;
+                    }
+                    queued.cancel();
+                    if (now - queued.queuedAt > maxQueueNanos) {
+                        if (expired == null) {
+                            expired = new ArrayDeque<Task>();
+                        }
+                        expired.add(queued.task);
+                        continue;
+                    }
+                    if (next == null) {
+                        next = new ArrayDeque<Task>();
+                    }
+                    inflight++;
+                    next.add(queued.task);
+                }
+            }
+            if (expired != null) {
+                for (Task task : expired) {
+                    task.reject(new TimeoutException(String.format("queued too long for %s", endpoint)));
+                }
+            }
+            return next;
+        }
+
+        private void expire(Queued queued) {
+            synchronized (this) {
+                if (!queue.remove(queued)) {
+                    return;
+                }
+            }
+            queued.task.reject(new TimeoutException(String.format("queued too long for %s", endpoint)));
+        }
+
+        private void update(long latencyNanos, Throwable cause) {
+            if (latencyNanos < 0) {
+                return;
+            }
+            if (isOverload(cause)) {
+                decrease(latencyNanos);
+                return;
+            }
+            if (cause != null) {
+                return;
+            }
+            if (++samples >= LATENCY_WINDOW) {
+                samples = 0;
+                minLatency = nextMinLatency;
+                nextMinLatency = Long.MAX_VALUE;
+            }
+            minLatency = Math.min(minLatency, latencyNanos);
+            nextMinLatency = Math.min(nextMinLatency, latencyNanos);
+            if (latencyNanos > minLatency * latencyTolerance) {
+                decrease(latencyNanos);
+            } else if ((inflight + 1) * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+
+        private void decrease(long latencyNanos) {
+            long now = System.nanoTime();
+            if (now - decreasedAt < latencyNanos) {
+                return;
+            }
+            decreasedAt = now;
+            limit = Math.max(minLimit, limit * backoffRatio);
+        }
+    }
+
+    private static class Queued {
+
+        private final Task task;
+        private final long queuedAt;
+        private ScheduledFuture<?> timeout;
+
+        private Queued(Task task, long queuedAt) {
+            this.task = task;
+            this.queuedAt = queuedAt;
+        }
+
+        private void cancel() {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+        }
+    }
+}
@@ -5,15 +5,22 @@ import cassandra.metadata.Metadata;
 import cassandra.metadata.MetadataService;
 import cassandra.metadata.PeerMetadata;
 import cassandra.protocol.CassandraMessage;
+import cassandra.routing.CircuitBreakerPolicy;
+import cassandra.routing.LatencyTracker;
+import cassandra.routing.RoutingPolicy;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.util.*;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -46,8 +53,19 @@ public class CassandraCluster {
         void onDropTable(CassandraCluster cluster, String keyspace, String table);
     }
 
+    public static interface CircuitBreakerListener {
+
+        void onCircuitOpen(CassandraCluster cluster, InetAddress endpoint);
+
+        void onCircuitHalfOpen(CassandraCluster cluster, InetAddress endpoint);
+
+        void onCircuitClose(CassandraCluster cluster, InetAddress endpoint);
+    }
+
     private static final Logger logger = LoggerFactory.getLogger(CassandraCluster.class);
     private static final RuntimeException unavailable = new RuntimeException("no available peers");
+    private static final long CATALOG_SAVE_DELAY_MILLIS = 1000;
+    private static final int BUDGET_BURST = 100;
 
     private Client client;
 
@@ -57,6 +75,9 @@ public class CassandraCluster {
         protected CassandraDriver driver;
         protected List<InetAddress> seeds = new ArrayList<InetAddress>();
         protected List<EventListener> listeners;
+        protected List<CircuitBreakerListener> circuitBreakerListeners;
+        protected PreparedStatementCatalog catalog;
+        protected boolean blockingCatalogWarmUp;
 
         public CassandraOptions.Builder getOptions() {
             if (options == null) {
@@ -134,6 +155,30 @@ public class CassandraCluster {
             return this;
         }
 
+        public Builder addCircuitBreakerListener(CircuitBreakerListener listener) {
+            if (listener == null) {
+                throw new NullPointerException("listener");
+            }
+            if (circuitBreakerListeners == null) {
+                circuitBreakerListeners = new ArrayList<CircuitBreakerListener>();
+            }
+            circuitBreakerListeners.add(listener);
+            return this;
+        }
+
+        public Builder setPreparedStatementCatalog(File file) {
+            return setPreparedStatementCatalog(file, false);
+        }
+
+        public Builder setPreparedStatementCatalog(File file, boolean blockingWarmUp) {
+            if (file == null) {
+                throw new NullPointerException("file");
+            }
+            catalog = new PreparedStatementCatalog(file);
+            blockingCatalogWarmUp = blockingWarmUp;
+            return this;
+        }
+
         public CassandraCluster build() {
             if (seeds.isEmpty()) {
                 throw new IllegalStateException("empty seeds");
@@ -157,6 +202,7 @@ public class CassandraCluster {
             throw unavailable;
         }
         client.driver().addShutdownHook(this);
+        client.warmUpCatalog(builder.blockingCatalogWarmUp);
     }
 
     public boolean isActive() {
@@ -187,6 +233,10 @@ public class CassandraCluster {
         return client.metadata();
     }
 
+    public PreparedStatementCache preparedStatementCache() {
+        return client.preparedStatementCache();
+    }
+
     public CassandraCluster addEventListener(EventListener listener) {
         if (listener == null) {
             throw new NullPointerException("listener");
@@ -205,6 +255,22 @@ public class CassandraCluster {
         return this;
     }
 
+    public CassandraCluster addCircuitBreakerListener(CircuitBreakerListener listener) {
+        if (listener == null) {
+            throw new NullPointerException("listener");
+        }
+        client.circuitBreakerListeners.add(listener);
+        return this;
+    }
+
+    public CassandraCluster addLatencyTracker(LatencyTracker tracker) {
+        if (tracker == null) {
+            throw new NullPointerException("tracker");
+        }
+        client.latencyTrackers.addIfAbsent(tracker);
+        return this;
+    }
+
 
 
 
@@ -212,18 +278,24 @@ public class CassandraCluster {
         client.close();
     }
 
-    class Client implements CassandraConnection.StateListener {
+    class Client implements CassandraConnection.StateListener, CircuitBreakerPolicy.Listener {
 
         private final CassandraOptions options;
         private final CassandraDriver driver;
         private final Set<InetAddress> seeds;
         private final List<EventListener> listeners;
+        private final List<CircuitBreakerListener> circuitBreakerListeners;
+        private final CopyOnWriteArrayList<LatencyTracker> latencyTrackers;
+        private final RequestBudget speculativeBudget, retryBudget;
         private final CassandraSession session;
         private final ConcurrentMap<String, CassandraSession> sessions;
         private final MetadataService metadata;
         private final AtomicReference<CassandraConnection> connection;
         private final ConcurrentMap<Integer, CassandraConnection> connections;
         private final ConcurrentMap<PreparedStatement.StatementId, String> pstmts;
+        private final PreparedStatementCache pstmtCache;
+        private final PreparedStatementCatalog catalog;
+        private final AtomicBoolean catalogSaveScheduled;
         private final AtomicBoolean active;
 
         private Client(Builder builder) {
@@ -238,9 +310,32 @@ public class CassandraCluster {
             if (builder.listeners != null) {
                 listeners.addAll(builder.listeners);
             }
+            circuitBreakerListeners = new CopyOnWriteArrayList<CircuitBreakerListener>();
+            if (builder.circuitBreakerListeners != null) {
+                circuitBreakerListeners.addAll(builder.circuitBreakerListeners);
+            }
+            latencyTrackers = new CopyOnWriteArrayList<LatencyTracker>();
+            RoutingPolicy routingPolicy = options.getRoutingPolicy();
+            while (routingPolicy != null) {
+                if (routingPolicy instanceof LatencyTracker) {
+                    latencyTrackers.add((LatencyTracker)routingPolicy);
+                }
+                if (routingPolicy instanceof CircuitBreakerPolicy) {
+                    ((CircuitBreakerPolicy)routingPolicy).addListener(this);
+                }
+                routingPolicy = routingPolicy instanceof RoutingPolicy.Wrapper ? ((RoutingPolicy.Wrapper)routingPolicy).routingPolicy() : null;
+            }
+            if (options.getSpeculativeExecutionPolicy() instanceof LatencyTracker) {
+                latencyTrackers.addIfAbsent((LatencyTracker)options.getSpeculativeExecutionPolicy());
+            }
+            speculativeBudget = new RequestBudget(options.getMaxSpeculativeExecutionPercent(), BUDGET_BURST, false);
+            retryBudget = options.getRetryBudgetPercent() > 0 ? new RequestBudget(options.getRetryBudgetPercent(), BUDGET_BURST, true) : null;
             connection = new AtomicReference<CassandraConnection>(null);
             connections = newConcurrentHashMap();
             pstmts = newConcurrentHashMap();
+            pstmtCache = new PreparedStatementCache(options.getPreparedStatementCacheSize());
+            catalog = builder.catalog;
+            catalogSaveScheduled = new AtomicBoolean();
             active = new AtomicBoolean();
         }
 
@@ -286,6 +381,10 @@ public class CassandraCluster {
             return metadata;
         }
 
+        public PreparedStatementCache preparedStatementCache() {
+            return pstmtCache;
+        }
+
         public boolean startDiscovery() {
             if (active.compareAndSet(false, true)) {
                 logger.info("starting discovery cluster - seeds{} (port:{})", seeds, options.getPort());
@@ -348,25 +447,122 @@ public class CassandraCluster {
             }
         }
 
+        public boolean hasLatencyTrackers() {
+            return !latencyTrackers.isEmpty();
+        }
+
+        public void startRequest(InetAddress endpoint) {
+            for (LatencyTracker tracker : latencyTrackers) {
+                tracker.start(endpoint);
+            }
+        }
+
+        public void updateLatency(InetAddress endpoint, long latencyNanos, Throwable cause) {
+            for (LatencyTracker tracker : latencyTrackers) {
+                tracker.update(endpoint, latencyNanos, cause);
+            }
+        }
+
+        public void creditSpeculativeExecution() {
+            speculativeBudget.credit();
+        }
+
+        public boolean acquireSpeculativeExecution() {
+            return speculativeBudget.tryAcquire();
+        }
+
+        public long speculativeExecutionCount() {
+            return speculativeBudget.acquiredCount();
+        }
+
+        public void creditRetry() {
+            if (retryBudget != null) {
+                retryBudget.credit();
+            }
+        }
+
+        public boolean acquireRetry() {
+            return retryBudget == null || retryBudget.tryAcquire();
+        }
+
         public String findPreparedQuery(PreparedStatement.StatementId id) {
             return pstmts.get(id);
         }
 
-        public PreparedStatement registerPreparedQuery(CassandraConnection connection, PreparedStatement pstmt) {
-            if (pstmts.putIfAbsent(pstmt.getId(), pstmt.getQuery()) == null) {
-                for (CassandraConnection c : connections.values()) {
-                    if (c.equals(connection)) {
-                        continue;
+        public boolean registerPreparedQuery(PreparedStatement pstmt) {
+            if (catalog != null && catalog.add(pstmt.getSession().keyspace(), pstmt.getQuery())) {
+                scheduleCatalogSave();
+            }
+            return pstmts.putIfAbsent(pstmt.getId(), pstmt.getQuery()) == null;
+        }
+
+        public void warmUpCatalog(boolean blocking) {
+            if (catalog == null) {
+                return;
+            }
+            List<PreparedStatementCatalog.Entry> entries = new ArrayList<PreparedStatementCatalog.Entry>();
+            UUID schemaVersion;
+            try {
+                schemaVersion = catalog.load(entries);
+            } catch (IOException e) {
+                logger.warn("cannot load prepared statement catalog - {}", catalog.file(), e);
+                return;
+            }
+            final boolean schemaChanged = schemaVersion == null || !schemaVersion.equals(metadata.getSchemaVersion());
+            logger.info("re-preparing {} statements from catalog - {}", entries.size(), catalog.file());
+            List<PreparedStatementFuture> futures = new ArrayList<PreparedStatementFuture>(entries.size());
+            for (final PreparedStatementCatalog.Entry entry : entries) {
+                if (!entry.keyspace().isEmpty() && !metadata.hasKeyspace(entry.keyspace())) {
+                    logger.debug("pruning prepared statement of dropped keyspace - {}", entry);
+                    continue;
+                }
+                catalog.add(entry.keyspace(), entry.query());
+                CassandraSession session = entry.keyspace().isEmpty() ? this.session : session(entry.keyspace());
+                futures.add(session.prepareStatementAsync(entry.query(), PreparedStatementFuture.Mode.ALL).addListener(new PreparedStatementFuture.Listener() {
+                    @Override
+                    public void completed(PreparedStatementFuture future) throws Exception {
+                        Throwable cause = future.cause();
+                        if (schemaChanged && (cause instanceof CassandraException.Invalid || cause instanceof CassandraException.SyntaxError)) {
+                            logger.debug("pruning stale prepared statement - {}", entry);
+                            catalog.remove(entry.keyspace(), entry.query());
+                        }
                     }
-                    c.send(new CassandraMessage.Prepare(pstmt.getQuery()));
+                }));
+            }
+            if (blocking) {
+                for (PreparedStatementFuture future : futures) {
+                    future.await(CassandraFuture.DEADLINE);
                 }
             }
-            return pstmt;
+            scheduleCatalogSave();
+        }
+
+        private void scheduleCatalogSave() {
+            if (catalogSaveScheduled.compareAndSet(false, true)) {
+                GlobalEventExecutor.INSTANCE.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        catalogSaveScheduled.set(false);
+                        saveCatalog();
+                    }
+                }, CATALOG_SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void saveCatalog() {
+            try {
+                catalog.save(metadata.getSchemaVersion());
+            } catch (IOException e) {
+                logger.warn("cannot save prepared statement catalog - {}", catalog.file(), e);
+            }
         }
 
         public void close() {
             if (active.compareAndSet(true, false)) {
                 logger.info("closing cluster - {}", metadata.getClusterName());
+                if (catalog != null) {
+                    saveCatalog();
+                }
                 session.close();
                 for (CassandraSession session : sessions.values()) {
                     session.close();
@@ -375,6 +571,26 @@ public class CassandraCluster {
             }
         }
 
+        @Override
+        public void onStateChanged(InetAddress endpoint, CircuitBreakerPolicy.State previous, CircuitBreakerPolicy.State state) {
+            logger.info("circuit {} for {} (was {})", state, endpoint, previous);
+            for (CircuitBreakerListener listener : circuitBreakerListeners) {
+                switch (state) {
+                    case OPEN:
+                        listener.onCircuitOpen(CassandraCluster.this, endpoint);
+                        break;
+                    case HALF_OPEN:
+                        listener.onCircuitHalfOpen(CassandraCluster.this, endpoint);
+                        break;
+                    case CLOSED:
+                        listener.onCircuitClose(CassandraCluster.this, endpoint);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
         @Override
         public void onOpen(CassandraConnection connection) {
             logger.debug("OPEN(cluster={}, address={})", metadata.getClusterName(), connection.remoteAddress());
@@ -503,6 +719,7 @@ public class CassandraCluster {
                     }
                     break;
                 case UPDATED:
+                    pstmtCache.invalidate(event.keyspace, emptyTable ? null : event.table);
                     for (EventListener listener : listeners) {
                         if (emptyTable) {
                             listener.onUpdateKeyspace(CassandraCluster.this, event.keyspace);
@@ -512,6 +729,7 @@ public class CassandraCluster {
                     }
                     break;
                 case DROPPED:
+                    pstmtCache.invalidate(event.keyspace, emptyTable ? null : event.table);
                     for (EventListener listener : listeners) {
                         if (emptyTable) {
                             listener.onDropKeyspace(CassandraCluster.this, event.keyspace);
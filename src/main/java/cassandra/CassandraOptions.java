@@ -6,6 +6,7 @@ import cassandra.protocol.internal.Compressor;
 import cassandra.retry.RetryPolicy;
 import cassandra.routing.RoundRobinPolicy;
 import cassandra.routing.RoutingPolicy;
+import cassandra.speculative.SpeculativeExecutionPolicy;
 
 import javax.net.ssl.SSLContext;
 
@@ -22,6 +23,9 @@ public class CassandraOptions {
     public static final Compression DEFAULT_COMPRESSION = Compression.NONE;
     public static final Consistency DEFAULT_CONSISTENCY = Consistency.ONE;
     public static final Consistency DEFAULT_SERIAL_CONSISTENCY = Consistency.SERIAL;
+    public static final int DEFAULT_PREPARED_STATEMENT_CACHE_SIZE = 1000;
+    public static final int DEFAULT_MAX_SPECULATIVE_EXECUTION_PERCENT = 10;
+    public static final int DEFAULT_RETRY_BUDGET_PERCENT = 20;
 
     private final int port;
     private final int connectTimeoutMillis;
@@ -33,6 +37,12 @@ public class CassandraOptions {
     private final RoutingPolicy routingPolicy;
     private final RetryPolicy retryPolicy;
     private final Consistency consistency, serialConsistency;
+    private final int preparedStatementCacheSize;
+    private final boolean coalesceReads;
+    private final SpeculativeExecutionPolicy speculativeExecutionPolicy;
+    private final int maxSpeculativeExecutionPercent;
+    private final int retryBudgetPercent;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
 
     public static class Builder {
 
@@ -47,6 +57,12 @@ public class CassandraOptions {
         protected RetryPolicy retryPolicy;
         protected Consistency consistency;
         protected Consistency serialConsistency;
+        protected Integer preparedStatementCacheSize;
+        protected Boolean coalesceReads;
+        protected SpeculativeExecutionPolicy speculativeExecutionPolicy;
+        protected Integer maxSpeculativeExecutionPercent;
+        protected Integer retryBudgetPercent;
+        protected AdaptiveConcurrencyLimiter concurrencyLimiter;
 
         public boolean hasPort() {
             return port != null;
@@ -159,6 +175,69 @@ public class CassandraOptions {
             return this;
         }
 
+        public boolean hasPreparedStatementCacheSize() {
+            return preparedStatementCacheSize != null;
+        }
+
+        public Builder setPreparedStatementCacheSize(int preparedStatementCacheSize) {
+            if (preparedStatementCacheSize < 0) {
+                throw new IllegalArgumentException(String.format("preparedStatementCacheSize: %d (expected: >= 0)", preparedStatementCacheSize));
+            }
+            this.preparedStatementCacheSize = preparedStatementCacheSize;
+            return this;
+        }
+
+        public boolean hasCoalesceReads() {
+            return coalesceReads != null;
+        }
+
+        public Builder setCoalesceReads(boolean coalesceReads) {
+            this.coalesceReads = coalesceReads;
+            return this;
+        }
+
+        public boolean hasSpeculativeExecutionPolicy() {
+            return speculativeExecutionPolicy != null;
+        }
+
+        public Builder setSpeculativeExecutionPolicy(SpeculativeExecutionPolicy speculativeExecutionPolicy) {
+            this.speculativeExecutionPolicy = speculativeExecutionPolicy;
+            return this;
+        }
+
+        public boolean hasMaxSpeculativeExecutionPercent() {
+            return maxSpeculativeExecutionPercent != null;
+        }
+
+        public Builder setMaxSpeculativeExecutionPercent(int maxSpeculativeExecutionPercent) {
+            if (maxSpeculativeExecutionPercent < 0 || maxSpeculativeExecutionPercent > 100) {
+                throw new IllegalArgumentException(String.format("maxSpeculativeExecutionPercent: %d (expected: >= 0 and <= 100)", maxSpeculativeExecutionPercent));
+            }
+            this.maxSpeculativeExecutionPercent = maxSpeculativeExecutionPercent;
+            return this;
+        }
+
+        public boolean hasRetryBudgetPercent() {
+            return retryBudgetPercent != null;
+        }
+
+        public Builder setRetryBudgetPercent(int retryBudgetPercent) {
+            if (retryBudgetPercent < 0) {
+                throw new IllegalArgumentException(String.format("retryBudgetPercent: %d (expected: >= 0)", retryBudgetPercent));
+            }
+            this.retryBudgetPercent = retryBudgetPercent;
+            return this;
+        }
+
+        public boolean hasConcurrencyLimiter() {
+            return concurrencyLimiter != null;
+        }
+
+        public Builder setConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+            this.concurrencyLimiter = concurrencyLimiter;
+            return this;
+        }
+
         public Builder mergeFrom(Builder builder) {
             if (!hasPort()) {
                 port = builder.port;
@@ -191,6 +270,24 @@ public class CassandraOptions {
             if (!hasSerialConsistency()) {
                 serialConsistency = builder.serialConsistency;
             }
+            if (!hasPreparedStatementCacheSize()) {
+                preparedStatementCacheSize = builder.preparedStatementCacheSize;
+            }
+            if (!hasCoalesceReads()) {
+                coalesceReads = builder.coalesceReads;
+            }
+            if (!hasSpeculativeExecutionPolicy()) {
+                speculativeExecutionPolicy = builder.speculativeExecutionPolicy;
+            }
+            if (!hasMaxSpeculativeExecutionPercent()) {
+                maxSpeculativeExecutionPercent = builder.maxSpeculativeExecutionPercent;
+            }
+            if (!hasRetryBudgetPercent()) {
+                retryBudgetPercent = builder.retryBudgetPercent;
+            }
+            if (!hasConcurrencyLimiter()) {
+                concurrencyLimiter = builder.concurrencyLimiter;
+            }
             return this;
         }
 
@@ -226,6 +323,24 @@ public class CassandraOptions {
             if (!hasSerialConsistency()) {
                 serialConsistency = options.serialConsistency;
             }
+            if (!hasPreparedStatementCacheSize()) {
+                preparedStatementCacheSize = options.preparedStatementCacheSize;
+            }
+            if (!hasCoalesceReads()) {
+                coalesceReads = options.coalesceReads;
+            }
+            if (!hasSpeculativeExecutionPolicy()) {
+                speculativeExecutionPolicy = options.speculativeExecutionPolicy;
+            }
+            if (!hasMaxSpeculativeExecutionPercent()) {
+                maxSpeculativeExecutionPercent = options.maxSpeculativeExecutionPercent;
+            }
+            if (!hasRetryBudgetPercent()) {
+                retryBudgetPercent = options.retryBudgetPercent;
+            }
+            if (!hasConcurrencyLimiter()) {
+                concurrencyLimiter = options.concurrencyLimiter;
+            }
             return this;
         }
 
@@ -257,6 +372,21 @@ public class CassandraOptions {
             if (!hasSerialConsistency()) {
                 serialConsistency = DEFAULT_SERIAL_CONSISTENCY;
             }
+            if (!hasPreparedStatementCacheSize()) {
+                preparedStatementCacheSize = DEFAULT_PREPARED_STATEMENT_CACHE_SIZE;
+            }
+            if (!hasCoalesceReads()) {
+                coalesceReads = false;
+            }
+            if (!hasSpeculativeExecutionPolicy()) {
+                speculativeExecutionPolicy = SpeculativeExecutionPolicy.DEFAULT;
+            }
+            if (!hasMaxSpeculativeExecutionPercent()) {
+                maxSpeculativeExecutionPercent = DEFAULT_MAX_SPECULATIVE_EXECUTION_PERCENT;
+            }
+            if (!hasRetryBudgetPercent()) {
+                retryBudgetPercent = DEFAULT_RETRY_BUDGET_PERCENT;
+            }
             return new CassandraOptions(this);
         }
     }
@@ -277,6 +407,12 @@ public class CassandraOptions {
         routingPolicy = builder.routingPolicy;
         consistency = builder.consistency;
         serialConsistency = builder.serialConsistency;
+        preparedStatementCacheSize = builder.preparedStatementCacheSize;
+        coalesceReads = builder.coalesceReads;
+        speculativeExecutionPolicy = builder.speculativeExecutionPolicy;
+        maxSpeculativeExecutionPercent = builder.maxSpeculativeExecutionPercent;
+        retryBudgetPercent = builder.retryBudgetPercent;
+        concurrencyLimiter = builder.concurrencyLimiter;
     }
 
     public int getPort() {
@@ -322,4 +458,28 @@ public class CassandraOptions {
     public Consistency getSerialConsistency() {
         return serialConsistency;
     }
+
+    public int getPreparedStatementCacheSize() {
+        return preparedStatementCacheSize;
+    }
+
+    public boolean isCoalesceReads() {
+        return coalesceReads;
+    }
+
+    public SpeculativeExecutionPolicy getSpeculativeExecutionPolicy() {
+        return speculativeExecutionPolicy;
+    }
+
+    public int getMaxSpeculativeExecutionPercent() {
+        return maxSpeculativeExecutionPercent;
+    }
+
+    public int getRetryBudgetPercent() {
+        return retryBudgetPercent;
+    }
+
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
 }
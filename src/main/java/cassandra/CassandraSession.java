@@ -1,30 +1,55 @@
 package cassandra;
 
 import cassandra.cql.*;
+import cassandra.cql.mapper.EntityMapper;
+import cassandra.cql.query.Batch;
 import cassandra.cql.query.Query;
 import cassandra.cql.query.QueryBuilder;
+import cassandra.cql.query.Select;
+import cassandra.metadata.ColumnMetadata;
 import cassandra.metadata.Metadata;
+import cassandra.metadata.Partitioner;
+import cassandra.metadata.PeerMetadata;
+import cassandra.metadata.TableMetadata;
 import cassandra.protocol.CassandraMessage;
 import cassandra.retry.RetryContext;
+import cassandra.routing.PreferredEndpointPolicy;
+import cassandra.routing.RoutingPolicy;
+import cassandra.speculative.NoSpeculativeExecutionPolicy;
+import cassandra.speculative.SpeculativeExecutionPolicy;
 import io.netty.util.concurrent.DefaultPromise;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import io.netty.util.concurrent.Promise;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.net.InetAddress;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static io.netty.util.internal.PlatformDependent.newConcurrentHashMap;
 
 public class CassandraSession {
 
+    private static final Logger logger = LoggerFactory.getLogger(CassandraSession.class);
+
     private final CassandraCluster.Client cluster;
     private final String keyspace;
     private final ConcurrentMap<InetAddress, CassandraConnection> connections;
+    private final ConcurrentMap<QueryBuilder.Shape, QueryTemplate> templates;
+    private final AtomicLong templateClock;
+    private final ReadCoalescer coalescer;
 
     CassandraSession(CassandraCluster.Client cluster) {
         this(cluster, "");
@@ -34,6 +59,9 @@ public class CassandraSession {
         this.cluster = cluster;
         this.keyspace = keyspace;
         connections = newConcurrentHashMap();
+        templates = newConcurrentHashMap();
+        templateClock = new AtomicLong();
+        coalescer = new ReadCoalescer(this);
     }
 
     public boolean isGlobal() {
@@ -48,6 +76,14 @@ public class CassandraSession {
         return cluster.options();
     }
 
+    public long coalescedReadCount() {
+        return coalescer.coalescedCount();
+    }
+
+    public long speculativeExecutionCount() {
+        return cluster.speculativeExecutionCount();
+    }
+
     public String keyspace() {
         return keyspace;
     }
@@ -64,21 +100,81 @@ public class CassandraSession {
         return new Statement(this, query, values);
     }
 
+    public <T> EntityMapper<T> mapper(Class<T> entityClass) {
+        return EntityMapper.of(entityClass);
+    }
+
     public PreparedStatement prepareStatement(String query) {
-        RetryContext context = new RetryContext(options().getRetryPolicy(), options().getRoutingPolicy().activeEndpoints(statement(query)));
-        CassandraMessage.Request prepare = new CassandraMessage.Prepare(query);
-        CassandraMessage.Result result = execute(prepare, new ResultFuture(this, context)).get();
-        CassandraMessage.Result.Prepared prepared = CassandraMessage.Result.Prepared.class.cast(result);
-        RowMetadata metadata = null;
-        RowMetadata parameterMetadata = null;
-        if (prepared.resultMetadata.columns != null) {
-            metadata = new RowMetadata(prepared.resultMetadata.columns);
+        if (query == null) {
+            throw new NullPointerException("query");
+        }
+        return cluster.preparedStatementCache().get(this, query);
+    }
+
+    public PreparedStatementFuture prepareStatementAsync(String query) {
+        return prepareStatementAsync(query, PreparedStatementFuture.Mode.ONE);
+    }
+
+    public PreparedStatementFuture prepareStatementAsync(String query, final PreparedStatementFuture.Mode mode) {
+        if (query == null) {
+            throw new NullPointerException("query");
         }
-        if (prepared.metadata.columns != null) {
-            parameterMetadata = new RowMetadata(prepared.metadata.columns);
+        final PreparedStatementFuture future = new PreparedStatementFuture(mode);
+        cluster.preparedStatementCache().getAsync(this, query, mode == PreparedStatementFuture.Mode.ONE ? null : future).addListener(new GenericFutureListener<Future<PreparedStatement>>() {
+            @Override
+            public void operationComplete(Future<PreparedStatement> f) throws Exception {
+                if (!f.isSuccess()) {
+                    future.setFailure(f.cause());
+                } else if (mode == PreparedStatementFuture.Mode.ONE) {
+                    future.prepare(f.getNow(), Collections.<InetAddress>emptyList());
+                } else if (!future.isPreparing()) {
+                    prepareOnEndpoints(f.getNow(), upEndpoints(), future, null);
+                }
+            }
+        });
+        return future;
+    }
+
+    Promise<PreparedStatement> prepareAsync(String query) {
+        return prepareAsync(query, null);
+    }
+
+    Promise<PreparedStatement> prepareAsync(final String query, final PreparedStatementFuture fanOut) {
+        final Promise<PreparedStatement> promise = new DefaultPromise<PreparedStatement>(GlobalEventExecutor.INSTANCE);
+        try {
+            final RetryContext context = new RetryContext(options().getRetryPolicy(), options().getRoutingPolicy().activeEndpoints(statement(query)));
+            ResultFuture future = execute(new CassandraMessage.Prepare(query), new ResultFuture(this, context));
+            future.promise().addListener(new GenericFutureListener<Future<CassandraMessage.Result>>() {
+                @Override
+                public void operationComplete(Future<CassandraMessage.Result> f) throws Exception {
+                    if (!f.isSuccess()) {
+                        promise.tryFailure(f.cause());
+                        return;
+                    }
+                    try {
+                        CassandraMessage.Result.Prepared prepared = CassandraMessage.Result.Prepared.class.cast(f.getNow());
+                        RowMetadata metadata = null;
+                        RowMetadata parameterMetadata = null;
+                        if (prepared.resultMetadata.columns != null) {
+                            metadata = new RowMetadata(prepared.resultMetadata.columns);
+                        }
+                        if (prepared.metadata.columns != null) {
+                            parameterMetadata = new RowMetadata(prepared.metadata.columns);
+                        }
+                        PreparedStatement pstmt = new PreparedStatement(CassandraSession.this, prepared.statementId, query, metadata, parameterMetadata);
+                        if (cluster.registerPreparedQuery(pstmt) || fanOut != null) {
+                            prepareOnEndpoints(pstmt, upEndpoints(), fanOut != null ? fanOut : new PreparedStatementFuture(PreparedStatementFuture.Mode.ALL), context.getCurrentEndpoint());
+                        }
+                        promise.trySuccess(pstmt);
+                    } catch (RuntimeException e) {
+                        promise.tryFailure(e);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            promise.tryFailure(e);
         }
-        PreparedStatement pstmt = new PreparedStatement(this, prepared.statementId, query, metadata, parameterMetadata);
-        return cluster.registerPreparedQuery(connection(context.getCurrentEndpoint()), pstmt);
+        return promise;
     }
 
     public ResultSet execute(Query query) {
@@ -102,6 +198,96 @@ public class CassandraSession {
     }
 
     public ResultSetFuture executeAsync(Query query) {
+        if (query instanceof Batch && ((Batch)query).isChunked()) {
+            return executeAsync(batchOf((Batch)query));
+        }
+        return executeAsync(statementOf(query));
+    }
+
+    private BatchStatement batchOf(Batch query) {
+        if (query.hasOptions()) {
+            throw new IllegalArgumentException("batch-level USING options cannot be combined with chunking");
+        }
+        BatchStatement batch = batch();
+        if (query.isCounterUpdate()) {
+            batch.setType(BatchStatement.Type.COUNTER);
+        } else if (!query.isLogged()) {
+            batch.setType(BatchStatement.Type.UNLOGGED);
+        }
+        batch.setMaxChunkStatements(query.maxChunkStatements());
+        batch.setMaxChunkBytes(query.maxChunkBytes());
+        batch.setSplitLogged(query.isSplitLogged());
+        for (Query<?> child : query.queries()) {
+            batch.add(statementOf(child));
+        }
+        if (query.routingPolicy() != null) {
+            batch.setRoutingPolicy(query.routingPolicy());
+        }
+        if (query.retryPolicy() != null) {
+            batch.setRetryPolicy(query.retryPolicy());
+        }
+        if (query.consistency() != null) {
+            batch.setConsistency(query.consistency());
+        }
+        batch.setTraceQuery(query.isTracing());
+        return batch;
+    }
+
+    private AbstractStatement<?> statementOf(Query<?> query) {
+        TableMetadata table = tableOf(query);
+        QueryBuilder.Shape shape = null;
+        QueryTemplate template = null;
+        if (options().getPreparedStatementCacheSize() > 0) {
+            shape = QueryBuilder.shapeOf(query);
+            template = templates.get(shape);
+            if (template != null && template.table != table) {
+                templates.remove(shape, template);
+                template = null;
+            }
+        }
+        AbstractStatement<?> stmt;
+        if (template != null) {
+            template.lastAccess = templateClock.incrementAndGet();
+            stmt = template.newStatement(this, shape.parameters());
+        } else {
+            QueryBuilder builder = new QueryBuilder(table);
+            query.accept(builder);
+            PreparedStatement pstmt = null;
+            if (query.isPrepared() && builder.hasParameters()) {
+                pstmt = prepareStatement(builder.build());
+                stmt = pstmt.clone().bind(builder.parameters().toArray());
+            } else {
+                stmt = statementOf(builder, false);
+            }
+            stmt.setRoutingKey(builder.routingKey());
+            if (shape != null) {
+                templates.putIfAbsent(shape.key(), new QueryTemplate(table, builder.build(), pstmt, builder.routingKeyIndexes(), templateClock.incrementAndGet()));
+                if (templates.size() > options().getPreparedStatementCacheSize()) {
+                    evictTemplates(options().getPreparedStatementCacheSize());
+                }
+            }
+        }
+        return applyOptions(query, stmt);
+    }
+
+    private void evictTemplates(int maximumSize) {
+        while (templates.size() > maximumSize) {
+            QueryBuilder.Shape eldestShape = null;
+            QueryTemplate eldest = null;
+            for (Map.Entry<QueryBuilder.Shape, QueryTemplate> e : templates.entrySet()) {
+                if (eldest == null || e.getValue().lastAccess < eldest.lastAccess) {
+                    eldestShape = e.getKey();
+                    eldest = e.getValue();
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            templates.remove(eldestShape, eldest);
+        }
+    }
+
+    private TableMetadata tableOf(Query<?> query) {
         String keyspace = query.keyspace();
         if (keyspace == null || keyspace.isEmpty()) {
             if (isGlobal()) {
@@ -115,23 +301,24 @@ public class CassandraSession {
         if (!metadata().hasTable(keyspace, query.table())) {
             throw new IllegalStateException(String.format("no matching table found: keyspace %s, table %s", keyspace, query.table()));
         }
-        QueryBuilder builder = new QueryBuilder(metadata().getTable(keyspace, query.table()));
-        query.accept(builder);
-        AbstractStatement<?> stmt;
-        if (query.isPrepared() && builder.hasParameters()) {
-            stmt = prepareStatement(builder.build()).bind(builder.parameters().toArray());
+        return metadata().getTable(keyspace, query.table());
+    }
+
+    private AbstractStatement<?> statementOf(QueryBuilder builder, boolean prepared) {
+        if (prepared && builder.hasParameters()) {
+            return prepareStatement(builder.build()).bind(builder.parameters().toArray());
+        } else if (builder.hasParameters()) {
+            return statement(builder.build(), builder.parameters().toArray());
         } else {
-            if (builder.hasParameters()) {
-                stmt = statement(builder.build(), builder.parameters().toArray());
-            } else {
-                stmt = statement(builder.build());
-            }
+            return statement(builder.build());
         }
+    }
+
+    private AbstractStatement<?> applyOptions(Query<?> query, AbstractStatement<?> stmt) {
         if (query.pageSizeLimit() > 0) {
             stmt.setPageSizeLimit(query.pageSizeLimit());
         }
         stmt.setKeyspace(query.keyspace());
-        stmt.setRoutingKey(builder.routingKey());
         if (query.routingKey() != null) {
             stmt.setRoutingKey(query.routingKey());
         }
@@ -149,7 +336,68 @@ public class CassandraSession {
         }
         stmt.setPagingState(query.pagingState());
         stmt.setTraceQuery(query.isTracing());
-        return executeAsync(stmt);
+        return stmt;
+    }
+
+    public ResultSetFuture executeFanOutAsync(Select select, int concurrency, boolean ordered) {
+        if (select == null) {
+            throw new NullPointerException("select");
+        }
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException(String.format("concurrency: %d (expected: > 0)", concurrency));
+        }
+        TableMetadata table = tableOf(select);
+        QueryBuilder builder = new QueryBuilder(table);
+        select.accept(builder);
+        if (!builder.hasPartitionKeyIn() || select.routingKey() != null || select.hasPagingState()) {
+            return executeAsync(select);
+        }
+        RoutingPolicy routingPolicy = select.routingPolicy() != null ? select.routingPolicy() : options().getRoutingPolicy();
+        Map<Object, List<Object>> groups = new LinkedHashMap<Object, List<Object>>();
+        for (Object value : builder.partitionKeyIn().value()) {
+            Object key;
+            if (ordered) {
+                key = groups.size();
+            } else {
+                Partitioner.Token token = null;
+                RoutingKey routingKey = builder.routingKey(value);
+                if (routingKey != null) {
+                    token = metadata().getPartitioner().getToken(routingKey.asByteBuffer());
+                }
+                key = token != null ? metadata().getPrimaryReplica(table.getKeyspaceName(), token, routingPolicy) : null;
+            }
+            List<Object> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<Object>();
+                groups.put(key, group);
+            }
+            group.add(value);
+        }
+        List<AbstractStatement<?>> statements = new ArrayList<AbstractStatement<?>>(groups.size());
+        for (Map.Entry<Object, List<Object>> group : groups.entrySet()) {
+            Object[] values = group.getValue().toArray();
+            QueryBuilder sub = new QueryBuilder(table).replace(builder.partitionKeyIn(), values);
+            select.accept(sub);
+            AbstractStatement<?> stmt = applyOptions(select, statementOf(sub, select.isPrepared()));
+            stmt.setRoutingKey(builder.routingKey(values[0]));
+            if (group.getKey() instanceof InetAddress) {
+                stmt.setRoutingPolicy(new PreferredEndpointPolicy((InetAddress)group.getKey(), stmt.getRoutingPolicy()));
+            }
+            statements.add(stmt);
+        }
+        int limit = select.hasLimit() ? select.limit().count() : -1;
+        return new ResultSetFuture(new FanOutQuery(this, statements, concurrency, ordered, limit).execute(), statements.get(0));
+    }
+
+    public ResultSetFuture executeByReplicaAsync(Collection<? extends AbstractStatement<?>> statements) {
+        if (statements == null) {
+            throw new NullPointerException("statements");
+        }
+        BatchStatement batch = batch().setType(BatchStatement.Type.UNLOGGED).setGroupByReplica(true);
+        for (AbstractStatement<?> statement : statements) {
+            batch.add(statement);
+        }
+        return executeAsync(batch);
     }
 
     public ResultSetFuture executeAsync(String query) {
@@ -168,11 +416,18 @@ public class CassandraSession {
         if (statement == null) {
             throw new NullPointerException("statement");
         }
+        if (statement instanceof BatchStatement) {
+            List<BatchStatement> chunks = ((BatchStatement)statement).split();
+            if (!chunks.isEmpty() && (chunks.size() > 1 || chunks.get(0) != statement)) {
+                return new ResultSetFuture(executeAsync(chunks), statement);
+            }
+        }
         CassandraMessage.QueryParameters queryParameters = null;
         if (!(statement instanceof BatchStatement)) {
             RowMetadata metadata = null;
-            if (statement instanceof PreparedStatement) {
-                metadata = ((PreparedStatement)statement).getMetadata();
+            PreparedStatement pstmt = PreparedStatement.definitionOf(statement);
+            if (pstmt != null) {
+                metadata = pstmt.getMetadata();
             }
             PagingState pagingState = statement.getPagingState();
             queryParameters = new CassandraMessage.QueryParameters(statement.getConsistency(),
@@ -182,7 +437,12 @@ public class CassandraSession {
                     pagingState != null ? pagingState.asByteBuffer() : null,
                     statement.getSerialConsistency());
         }
-        ResultFuture future = executeAsync(statement, queryParameters);
+        ResultFuture future;
+        if (queryParameters != null && options().isCoalesceReads() && statement.isSelect() && statement.isIdempotent() && !statement.isTraceQuery()) {
+            future = coalescer.execute(statement, queryParameters);
+        } else {
+            future = executeAsync(statement, queryParameters);
+        }
         return new ResultSetFuture(future, statement);
     }
 
@@ -190,35 +450,58 @@ public class CassandraSession {
         if (statement == null) {
             throw new NullPointerException("statement");
         }
+        return executeAsync(statement, queryParameters, new RetryContext(statement.getRetryPolicy(), statement.getRoutingPolicy().activeEndpoints(statement)));
+    }
+
+    ResultFuture executeAsync(AbstractStatement<?> statement, CassandraMessage.QueryParameters queryParameters, RetryContext context) {
+        CassandraMessage.Request request = newRequest(statement, queryParameters);
+        ResultFuture future = execute(request, new ResultFuture(this, context));
+        SpeculativeExecutionPolicy speculativeExecutionPolicy = options().getSpeculativeExecutionPolicy();
+        if (speculativeExecutionPolicy != NoSpeculativeExecutionPolicy.INSTANCE && statement.isIdempotent()) {
+            return new SpeculativeExecution(this, cluster, statement, queryParameters, speculativeExecutionPolicy, future).execute();
+        }
+        return future;
+    }
+
+    CassandraMessage.Request newRequest(AbstractStatement<?> statement, CassandraMessage.QueryParameters queryParameters) {
         CassandraMessage.Request request;
         if (statement instanceof BatchStatement) {
             BatchStatement batch = (BatchStatement)statement;
             List<CassandraMessage.Batch.QueryValue> queryValues = new ArrayList<CassandraMessage.Batch.QueryValue>();
             for (AbstractStatement<?> stmt : batch) {
-                Object stringOrId;
-                if (stmt instanceof PreparedStatement) {
-                    stringOrId = ((PreparedStatement)stmt).getId();
-                } else {
-                    stringOrId = stmt.getQuery();
-                }
-                List<ByteBuffer> values;
-                if (stmt.hasParameters()) {
-                    values = Arrays.asList(stmt.getParameters());
-                } else {
-                    values = Collections.emptyList();
-                }
-                queryValues.add(new CassandraMessage.Batch.QueryValue(stringOrId, values));
+                queryValues.add(CassandraMessage.Batch.QueryValue.valueOf(stmt));
             }
             request = new CassandraMessage.Batch(batch.getType(), queryValues, batch.getConsistency());
-        } else if (statement instanceof PreparedStatement) {
-            PreparedStatement pstmt = (PreparedStatement)statement;
+        } else if (PreparedStatement.definitionOf(statement) != null) {
+            PreparedStatement pstmt = PreparedStatement.definitionOf(statement);
             request = new CassandraMessage.Execute(pstmt.getId(), queryParameters);
         } else {
             request = new CassandraMessage.Query(statement.getQuery(), queryParameters);
         }
         request.setTracing(statement.isTraceQuery());
-        RetryContext context = new RetryContext(statement.getRetryPolicy(), statement.getRoutingPolicy().activeEndpoints(statement));
-        return execute(request, new ResultFuture(this, context));
+        return request;
+    }
+
+    private ResultFuture executeAsync(List<BatchStatement> chunks) {
+        List<ResultFuture> futures = new ArrayList<ResultFuture>(chunks.size());
+        for (BatchStatement chunk : chunks) {
+            futures.add(executeAsync(chunk, null));
+        }
+        final ResultFuture aggregate = new ResultFuture(this, futures.get(0).context());
+        final AtomicInteger pending = new AtomicInteger(futures.size());
+        for (ResultFuture future : futures) {
+            future.promise().addListener(new GenericFutureListener<Future<CassandraMessage.Result>>() {
+                @Override
+                public void operationComplete(Future<CassandraMessage.Result> f) throws Exception {
+                    if (!f.isSuccess()) {
+                        aggregate.promise().tryFailure(f.cause());
+                    } else if (pending.decrementAndGet() == 0) {
+                        aggregate.promise().trySuccess(f.getNow());
+                    }
+                }
+            });
+        }
+        return aggregate;
     }
 
     public void close() {
@@ -230,12 +513,95 @@ public class CassandraSession {
         }
     }
 
-    private ResultFuture execute(CassandraMessage.Request request, ResultFuture future) {
-        InetAddress endpoint = future.context().getCurrentEndpoint();
-        connection(endpoint).send(request).addListener(future);
+    ResultFuture execute(final CassandraMessage.Request request, final ResultFuture future) {
+        final InetAddress endpoint = future.context().getCurrentEndpoint();
+        final AdaptiveConcurrencyLimiter limiter = options().getConcurrencyLimiter();
+        if (limiter == null || endpoint == null) {
+            return send(endpoint, request, future, null);
+        }
+        limiter.execute(endpoint, new AdaptiveConcurrencyLimiter.Task() {
+            @Override
+            public void run() {
+                if (future.promise().isDone()) {
+                    limiter.release(endpoint, -1, null);
+                    return;
+                }
+                try {
+                    send(endpoint, request, future, limiter);
+                } catch (RuntimeException e) {
+                    limiter.release(endpoint, -1, e);
+                    future.promise().tryFailure(e);
+                }
+            }
+
+            @Override
+            public void reject(Throwable cause) {
+                future.promise().tryFailure(cause);
+            }
+        });
+        return future;
+    }
+
+    private ResultFuture send(final InetAddress endpoint, CassandraMessage.Request request, ResultFuture future, final AdaptiveConcurrencyLimiter limiter) {
+        final long startedAt = System.nanoTime();
+        CassandraFuture f = connection(endpoint).send(request);
+        if (limiter != null) {
+            f.addListener(new CassandraFuture.Listener() {
+                @Override
+                public void completed(CassandraFuture f) throws Exception {
+                    limiter.release(endpoint, System.nanoTime() - startedAt, f.cause());
+                }
+            });
+        }
+        if (cluster.hasLatencyTrackers()) {
+            cluster.startRequest(endpoint);
+            f.addListener(new CassandraFuture.Listener() {
+                @Override
+                public void completed(CassandraFuture f) throws Exception {
+                    cluster.updateLatency(endpoint, System.nanoTime() - startedAt, f.cause());
+                }
+            });
+        }
+        f.addListener(future);
         return future;
     }
 
+    private void prepareOnEndpoints(PreparedStatement pstmt, Collection<InetAddress> endpoints, final PreparedStatementFuture future, InetAddress prepared) {
+        future.prepare(pstmt, endpoints);
+        for (final InetAddress endpoint : endpoints) {
+            if (endpoint.equals(prepared)) {
+                future.setSuccess(endpoint);
+                continue;
+            }
+            try {
+                connection(endpoint).send(new CassandraMessage.Prepare(pstmt.getQuery())).addListener(new CassandraFuture.Listener() {
+                    @Override
+                    public void completed(CassandraFuture f) throws Exception {
+                        if (f.isSuccess()) {
+                            future.setSuccess(endpoint);
+                        } else {
+                            logger.debug("PREPARE FAIL(address={}, cause={})", endpoint, f.cause().getMessage(), f.cause());
+                            future.setFailure(endpoint, f.cause());
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                logger.debug("PREPARE FAIL(address={}, cause={})", endpoint, e.getMessage(), e);
+                future.setFailure(endpoint, e);
+            }
+        }
+    }
+
+    private List<InetAddress> upEndpoints() {
+        List<InetAddress> endpoints = new ArrayList<InetAddress>();
+        for (PeerMetadata peer : metadata().getPeers()) {
+            if (peer.isUp()) {
+                endpoints.add(peer.getAddress());
+            }
+        }
+        return endpoints;
+    }
+
     private CassandraConnection connection(InetAddress endpoint) {
         if (endpoint == null) {
             throw new NullPointerException("endpoint");
@@ -295,7 +661,11 @@ public class CassandraSession {
 
         @Override
         public void completed(final CassandraFuture future) throws Exception {
+            if (promise.isDone()) {
+                return;
+            }
             if (future.isSuccess()) {
+                cluster.creditRetry();
                 promise.trySuccess((CassandraMessage.Result)future.get());
             } else {
                 Throwable cause = future.cause();
@@ -323,13 +693,79 @@ public class CassandraSession {
                         promise.tryFailure(cause);
                     }
                 } else {
-                    if (context.canRetry()) {
-                        session.execute(future.request(), this);
+                    if (context.canRetry() && cluster.acquireRetry()) {
+                        retry(future.request(), context.getRetryDelayMillis());
                     } else {
                         promise.tryFailure(cause);
                     }
                 }
             }
         }
+
+        private void retry(final CassandraMessage.Request request, long delayMillis) {
+            if (delayMillis <= 0) {
+                session.execute(request, this);
+                return;
+            }
+            CassandraDriver.getGlobalEventExecutor().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (promise.isDone()) {
+                        return;
+                    }
+                    try {
+                        session.execute(request, ResultFuture.this);
+                    } catch (RuntimeException e) {
+                        promise.tryFailure(e);
+                    }
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static class QueryTemplate {
+
+        private final TableMetadata table;
+        private final String query;
+        private final PreparedStatement pstmt;
+        private final int[] routingKeyIndexes;
+        private volatile long lastAccess;
+
+        private QueryTemplate(TableMetadata table, String query, PreparedStatement pstmt, int[] routingKeyIndexes, long lastAccess) {
+            this.table = table;
+            this.query = query;
+            this.pstmt = pstmt;
+            this.routingKeyIndexes = routingKeyIndexes;
+            this.lastAccess = lastAccess;
+        }
+
+        private AbstractStatement<?> newStatement(CassandraSession session, List<Object> parameters) {
+            AbstractStatement<?> stmt;
+            if (pstmt != null) {
+                stmt = pstmt.newBoundStatement(parameters.toArray());
+            } else if (parameters.isEmpty()) {
+                stmt = session.statement(query);
+            } else {
+                stmt = session.statement(query, parameters.toArray());
+            }
+            stmt.setRoutingKey(routingKey(parameters));
+            return stmt;
+        }
+
+        private RoutingKey routingKey(List<Object> parameters) {
+            if (routingKeyIndexes == null) {
+                return null;
+            }
+            List<ColumnMetadata> partitionKey = table.getPartitionKey();
+            ByteBuffer[] routingKey = new ByteBuffer[routingKeyIndexes.length];
+            for (int i = 0; i < routingKeyIndexes.length; i++) {
+                Object value = parameters.get(routingKeyIndexes[i]);
+                if (value == null) {
+                    return null;
+                }
+                routingKey[i] = partitionKey.get(i).getCqlType().serialize(value);
+            }
+            return RoutingKey.copyFrom(routingKey);
+        }
     }
 }
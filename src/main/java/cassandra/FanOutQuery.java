@@ -0,0 +1,191 @@
+package cassandra;
+
+import cassandra.cql.AbstractStatement;
+import cassandra.cql.PagingState;
+import cassandra.cql.PreparedStatement;
+import cassandra.protocol.CassandraMessage;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class FanOutQuery {
+
+    private final CassandraSession session;
+    private final List<AbstractStatement<?>> statements;
+    private final int concurrency;
+    private final boolean ordered;
+    private final int limit;
+    private final List<Queue<List<ByteBuffer>>> results;
+    private final Queue<List<ByteBuffer>> merged;
+    private final boolean[] done;
+    private final AtomicInteger next, pending;
+    private boolean finished;
+    private volatile CassandraMessage.Result.Rows columns;
+    private CassandraSession.ResultFuture future;
+
+    FanOutQuery(CassandraSession session, List<AbstractStatement<?>> statements, int concurrency, boolean ordered, int limit) {
+        this.session = session;
+        this.statements = statements;
+        this.concurrency = concurrency;
+        this.ordered = ordered;
+        this.limit = limit;
+        results = new ArrayList<Queue<List<ByteBuffer>>>(Collections.<Queue<List<ByteBuffer>>>nCopies(statements.size(), null));
+        merged = new ArrayDeque<List<ByteBuffer>>();
+        done = new boolean[statements.size()];
+        next = new AtomicInteger();
+        pending = new AtomicInteger(statements.size());
+    }
+
+    CassandraSession.ResultFuture execute() {
+        CassandraSession.ResultFuture first = session.executeAsync(statements.get(0), queryParameters(statements.get(0), null));
+        future = session.new ResultFuture(session, first.context());
+        next.set(1);
+        listen(0, first);
+        for (int i = 1; i < concurrency; i++) {
+            if (!executeNext()) {
+                break;
+            }
+        }
+        return future;
+    }
+
+    private boolean executeNext() {
+        int index = next.getAndIncrement();
+        if (index >= statements.size() || future.promise().isDone()) {
+            return false;
+        }
+        try {
+            listen(index, session.executeAsync(statements.get(index), queryParameters(statements.get(index), null)));
+        } catch (RuntimeException e) {
+            future.promise().tryFailure(e);
+            return false;
+        }
+        return true;
+    }
+
+    private void listen(final int index, CassandraSession.ResultFuture f) {
+        f.promise().addListener(new GenericFutureListener<Future<CassandraMessage.Result>>() {
+            @Override
+            public void operationComplete(Future<CassandraMessage.Result> f) throws Exception {
+                if (!f.isSuccess()) {
+                    future.promise().tryFailure(f.cause());
+                    return;
+                }
+                CassandraMessage.Result result = f.getNow();
+                if (result.kind != CassandraMessage.Result.Kind.ROWS) {
+                    completed(index, new ArrayDeque<List<ByteBuffer>>(0));
+                    return;
+                }
+                CassandraMessage.Result.Rows rows = (CassandraMessage.Result.Rows)result;
+                if (columns == null && rows.metadata.columns != null) {
+                    columns = rows;
+                }
+                Queue<List<ByteBuffer>> queue = results.get(index);
+                if (queue == null) {
+                    queue = rows.rows;
+                    results.set(index, queue);
+                } else {
+                    queue.addAll(rows.rows);
+                }
+                if (rows.metadata.pagingState != null && !future.promise().isDone() && !isSatisfied(queue)) {
+                    AbstractStatement<?> statement = statements.get(index);
+                    listen(index, session.executeAsync(statement, queryParameters(statement, rows.metadata.pagingState)));
+                } else {
+                    completed(index, results.get(index));
+                }
+            }
+        });
+    }
+
+    private boolean isSatisfied(Queue<List<ByteBuffer>> rows) {
+        if (limit < 0) {
+            return false;
+        }
+        if (rows.size() >= limit) {
+            return true;
+        }
+        if (ordered) {
+            return false;
+        }
+        synchronized (merged) {
+            return merged.size() >= limit;
+        }
+    }
+
+    private void completed(int index, Queue<List<ByteBuffer>> rows) {
+        boolean complete;
+        synchronized (merged) {
+            if (finished) {
+                return;
+            }
+            if (ordered) {
+                results.set(index, rows);
+                done[index] = true;
+            } else {
+                append(rows);
+            }
+            complete = pending.decrementAndGet() == 0 || isLimitReached();
+            if (complete) {
+                finished = true;
+                if (ordered) {
+                    for (int i = 0; i < done.length && done[i]; i++) {
+                        append(results.get(i));
+                    }
+                }
+            }
+        }
+        if (complete) {
+            CassandraMessage.Metadata metadata;
+            if (columns != null) {
+                metadata = new CassandraMessage.Metadata(columns.metadata.columnCount, columns.metadata.columns, null);
+            } else {
+                metadata = new CassandraMessage.Metadata(0, null, null);
+            }
+            future.promise().trySuccess(new CassandraMessage.Result.Rows(metadata, merged));
+        } else {
+            executeNext();
+        }
+    }
+
+    private boolean isLimitReached() {
+        if (limit < 0) {
+            return false;
+        }
+        if (!ordered) {
+            return merged.size() >= limit;
+        }
+        int count = 0;
+        for (int i = 0; i < done.length && done[i] && count < limit; i++) {
+            count += results.get(i).size();
+        }
+        return count >= limit;
+    }
+
+    private void append(Queue<List<ByteBuffer>> rows) {
+        List<ByteBuffer> row;
+        while ((limit < 0 || merged.size() < limit) && (row = rows.poll()) != null) {
+            merged.add(row);
+        }
+    }
+
+    private static CassandraMessage.QueryParameters queryParameters(AbstractStatement<?> statement, ByteBuffer pagingState) {
+        PreparedStatement pstmt = PreparedStatement.definitionOf(statement);
+        PagingState initialPagingState = statement.getPagingState();
+        if (pagingState == null && initialPagingState != null) {
+            pagingState = initialPagingState.asByteBuffer();
+        }
+        return new CassandraMessage.QueryParameters(statement.getConsistency(),
+                statement.getParameters(),
+                pstmt != null && pstmt.getMetadata() != null,
+                statement.getPageSizeLimit(),
+                pagingState,
+                statement.getSerialConsistency());
+    }
+}
@@ -0,0 +1,191 @@
+package cassandra;
+
+import cassandra.cql.PreparedStatement;
+import cassandra.cql.RowMetadata;
+import io.netty.util.concurrent.DefaultPromise;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.Promise;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.netty.util.internal.PlatformDependent.newConcurrentHashMap;
+
+public class PreparedStatementCache {
+
+    private final int maximumSize;
+    private final ConcurrentMap<Key, Entry> entries;
+    private final AtomicLong clock, hits, misses;
+
+    PreparedStatementCache(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException(String.format("maximumSize: %d (expected: >= 0)", maximumSize));
+        }
+        this.maximumSize = maximumSize;
+        entries = newConcurrentHashMap();
+        clock = new AtomicLong();
+        hits = new AtomicLong();
+        misses = new AtomicLong();
+    }
+
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public void invalidate(String keyspace) {
+        invalidate(keyspace, null);
+    }
+
+    public void invalidate(String keyspace, String table) {
+        if (keyspace == null) {
+            throw new NullPointerException("keyspace");
+        }
+        for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+            if (e.getValue().matches(e.getKey(), keyspace, table)) {
+                entries.remove(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    PreparedStatement get(CassandraSession session, String query) {
+        return CassandraFuture.get(getAsync(session, query), CassandraFuture.DEADLINE).clone();
+    }
+
+    Promise<PreparedStatement> getAsync(CassandraSession session, String query) {
+        return getAsync(session, query, null);
+    }
+
+    Promise<PreparedStatement> getAsync(CassandraSession session, String query, PreparedStatementFuture fanOut) {
+        if (maximumSize == 0) {
+            return session.prepareAsync(query, fanOut);
+        }
+        final Key key = new Key(session.keyspace(), query);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits.incrementAndGet();
+            entry.lastAccess = clock.incrementAndGet();
+            return entry.promise;
+        }
+        final Entry newEntry = new Entry(clock.incrementAndGet());
+        entry = entries.putIfAbsent(key, newEntry);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return entry.promise;
+        }
+        misses.incrementAndGet();
+        session.prepareAsync(query, fanOut).addListener(new GenericFutureListener<Future<PreparedStatement>>() {
+            @Override
+            public void operationComplete(Future<PreparedStatement> future) throws Exception {
+                if (future.isSuccess()) {
+                    newEntry.setTable(future.getNow());
+                    newEntry.promise.trySuccess(future.getNow());
+                    if (entries.size() > maximumSize) {
+                        evict();
+                    }
+                } else {
+                    entries.remove(key, newEntry);
+                    newEntry.promise.tryFailure(future.cause());
+                }
+            }
+        });
+        return newEntry.promise;
+    }
+
+    private void evict() {
+        while (entries.size() > maximumSize) {
+            Key eldestKey = null;
+            Entry eldest = null;
+            for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                if (entry.promise.isDone() && (eldest == null || entry.lastAccess < eldest.lastAccess)) {
+                    eldestKey = e.getKey();
+                    eldest = entry;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            entries.remove(eldestKey, eldest);
+        }
+    }
+
+    private static class Key {
+
+        private final String keyspace;
+        private final String query;
+
+        private Key(String keyspace, String query) {
+            this.keyspace = keyspace;
+            this.query = query;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * keyspace.hashCode() + query.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key)o;
+            return keyspace.equals(key.keyspace) && query.equals(key.query);
+        }
+    }
+
+    private static class Entry {
+
+        private final Promise<PreparedStatement> promise;
+        private volatile long lastAccess;
+        private volatile String keyspace, table;
+
+        private Entry(long lastAccess) {
+            this.lastAccess = lastAccess;
+            promise = new DefaultPromise<PreparedStatement>(GlobalEventExecutor.INSTANCE);
+        }
+
+        private void setTable(PreparedStatement pstmt) {
+            RowMetadata metadata = pstmt.getParameterMetadata();
+            if (metadata == null || metadata.getColumnCount() == 0) {
+                metadata = pstmt.getMetadata();
+            }
+            if (metadata != null && metadata.getColumnCount() > 0) {
+                keyspace = metadata.getKeyspaceName(0);
+                table = metadata.getTableName(0);
+            }
+        }
+
+        private boolean matches(Key key, String keyspace, String table) {
+            if (this.keyspace == null) {
+                return table == null && keyspace.equals(key.keyspace);
+            }
+            if (!keyspace.equals(this.keyspace)) {
+                return false;
+            }
+            return table == null || table.equals(this.table);
+        }
+    }
+}
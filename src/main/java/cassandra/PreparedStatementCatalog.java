@@ -0,0 +1,133 @@
+package cassandra;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+public class PreparedStatementCatalog {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final File file;
+    private final Set<Entry> entries;
+
+    public PreparedStatementCatalog(File file) {
+        if (file == null) {
+            throw new NullPointerException("file");
+        }
+        this.file = file;
+        entries = Collections.newSetFromMap(PlatformDependent.<Entry, Boolean>newConcurrentHashMap());
+    }
+
+    public File file() {
+        return file;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Set<Entry> entries() {
+        return Collections.unmodifiableSet(entries);
+    }
+
+    public boolean add(String keyspace, String query) {
+        return entries.add(new Entry(keyspace, query));
+    }
+
+    public boolean remove(String keyspace, String query) {
+        return entries.remove(new Entry(keyspace, query));
+    }
+
+    public synchronized UUID load(Collection<Entry> loaded) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        JsonNode root = mapper.readTree(file);
+        UUID schemaVersion = null;
+        if (root.hasNonNull("schema_version")) {
+            schemaVersion = UUID.fromString(root.get("schema_version").asText());
+        }
+        JsonNode statements = root.get("statements");
+        if (statements != null) {
+            for (JsonNode statement : statements) {
+                if (statement.hasNonNull("query")) {
+                    loaded.add(new Entry(statement.path("keyspace").asText(), statement.get("query").asText()));
+                }
+            }
+        }
+        return schemaVersion;
+    }
+
+    public synchronized void save(UUID schemaVersion) throws IOException {
+        ObjectNode root = mapper.createObjectNode();
+        if (schemaVersion != null) {
+            root.put("schema_version", schemaVersion.toString());
+        }
+        ArrayNode statements = root.putArray("statements");
+        for (Entry entry : entries) {
+            statements.addObject().put("keyspace", entry.keyspace).put("query", entry.query);
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException(String.format("cannot create directory %s", parent));
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        mapper.writeValue(tmp, root);
+        if (!tmp.renameTo(file)) {
+            if (!file.delete() || !tmp.renameTo(file)) {
+                throw new IOException(String.format("cannot rename %s to %s", tmp, file));
+            }
+        }
+    }
+
+    public static class Entry {
+
+        private final String keyspace;
+        private final String query;
+
+        public Entry(String keyspace, String query) {
+            if (query == null) {
+                throw new NullPointerException("query");
+            }
+            this.keyspace = keyspace == null ? "" : keyspace;
+            this.query = query;
+        }
+
+        public String keyspace() {
+            return keyspace;
+        }
+
+        public String query() {
+            return query;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * keyspace.hashCode() + query.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry entry = (Entry)o;
+            return keyspace.equals(entry.keyspace) && query.equals(entry.query);
+        }
+
+        @Override
+        public String toString() {
+            return keyspace.isEmpty() ? query : String.format("%s: %s", keyspace, query);
+        }
+    }
+}
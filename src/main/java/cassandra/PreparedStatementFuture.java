@@ -0,0 +1,153 @@
+package cassandra;
+
+import cassandra.cql.PreparedStatement;
+import io.netty.util.concurrent.DefaultPromise;
+import io.netty.util.concurrent.GenericFutureListener;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.internal.PlatformDependent;
+
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.util.internal.PlatformDependent.newConcurrentHashMap;
+
+public class PreparedStatementFuture {
+
+    public static enum Mode {
+        ONE, QUORUM, ALL
+    }
+
+    public static interface Listener {
+
+        void completed(PreparedStatementFuture future) throws Exception;
+    }
+
+    private final Mode mode;
+    private final Promise<PreparedStatement> promise;
+    private final Set<InetAddress> preparedHosts;
+    private final ConcurrentMap<InetAddress, Throwable> failures;
+    private final AtomicInteger pending;
+    private volatile PreparedStatement pstmt;
+    private volatile int hosts, required;
+
+    PreparedStatementFuture(Mode mode) {
+        if (mode == null) {
+            throw new NullPointerException("mode");
+        }
+        this.mode = mode;
+        promise = new DefaultPromise<PreparedStatement>(GlobalEventExecutor.INSTANCE);
+        preparedHosts = Collections.newSetFromMap(PlatformDependent.<InetAddress, Boolean>newConcurrentHashMap());
+        failures = newConcurrentHashMap();
+        pending = new AtomicInteger();
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public boolean isDone() {
+        return promise.isDone();
+    }
+
+    public boolean isSuccess() {
+        return promise.isSuccess();
+    }
+
+    public Throwable cause() {
+        return promise.cause();
+    }
+
+    public Future<PreparedStatement> asJavaFuture() {
+        return promise;
+    }
+
+    public boolean await(long timeout) {
+        return promise.awaitUninterruptibly(CassandraFuture.timeout(timeout));
+    }
+
+    public PreparedStatementFuture addListener(final Listener listener) {
+        if (listener == null) {
+            throw new NullPointerException("listener");
+        }
+        promise.addListener(new GenericFutureListener<io.netty.util.concurrent.Future<PreparedStatement>>() {
+            @Override
+            public void operationComplete(io.netty.util.concurrent.Future<PreparedStatement> future) throws Exception {
+                listener.completed(PreparedStatementFuture.this);
+            }
+        });
+        return this;
+    }
+
+    public PreparedStatement get() {
+        return get(CassandraFuture.DEADLINE);
+    }
+
+    public PreparedStatement get(long timeout) {
+        return CassandraFuture.get(promise, timeout);
+    }
+
+    public Set<InetAddress> getPreparedHosts() {
+        return Collections.unmodifiableSet(preparedHosts);
+    }
+
+    public Map<InetAddress, Throwable> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    boolean isPreparing() {
+        return pstmt != null;
+    }
+
+    void prepare(PreparedStatement pstmt, Collection<InetAddress> endpoints) {
+        this.pstmt = pstmt;
+        hosts = endpoints.size();
+        switch (mode) {
+            case QUORUM:
+                required = hosts / 2 + 1;
+                break;
+            case ALL:
+                required = hosts;
+                break;
+            default:
+                required = Math.min(1, hosts);
+                break;
+        }
+        pending.set(hosts);
+        if (required == 0) {
+            promise.trySuccess(pstmt.clone());
+        }
+    }
+
+    void setSuccess(InetAddress endpoint) {
+        preparedHosts.add(endpoint);
+        if (preparedHosts.size() >= required) {
+            promise.trySuccess(pstmt.clone());
+        }
+        complete();
+    }
+
+    void setFailure(InetAddress endpoint, Throwable cause) {
+        failures.put(endpoint, cause);
+        if (failures.size() > hosts - required) {
+            promise.tryFailure(new IllegalStateException(String.format("prepared on %d of %d hosts (required: %d, failures: %s)", preparedHosts.size(), hosts, required, failures.keySet()), cause));
+        }
+        complete();
+    }
+
+    void setFailure(Throwable cause) {
+        promise.tryFailure(cause);
+    }
+
+    private void complete() {
+        if (pending.decrementAndGet() == 0 && !promise.isDone()) {
+            promise.tryFailure(new IllegalStateException(String.format("prepared on %d of %d hosts (required: %d)", preparedHosts.size(), hosts, required)));
+        }
+    }
+}
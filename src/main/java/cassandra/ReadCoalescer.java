@@ -0,0 +1,163 @@
+package cassandra;
+
+import cassandra.cql.AbstractStatement;
+import cassandra.cql.PreparedStatement;
+import cassandra.protocol.CassandraMessage;
+import cassandra.retry.RetryContext;
+import io.netty.util.concurrent.DefaultPromise;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.Promise;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.netty.util.internal.PlatformDependent.newConcurrentHashMap;
+
+class ReadCoalescer {
+
+    private final CassandraSession session;
+    private final ConcurrentMap<Key, Entry> inflight;
+    private final AtomicLong coalesced;
+
+    ReadCoalescer(CassandraSession session) {
+        this.session = session;
+        inflight = newConcurrentHashMap();
+        coalesced = new AtomicLong();
+    }
+
+    long coalescedCount() {
+        return coalesced.get();
+    }
+
+    CassandraSession.ResultFuture execute(AbstractStatement<?> statement, CassandraMessage.QueryParameters queryParameters) {
+        final Key key = new Key(statement, queryParameters);
+        Entry shared = inflight.get(key);
+        boolean leading = false;
+        if (shared == null) {
+            final Entry entry = new Entry(new RetryContext(statement.getRetryPolicy(), statement.getRoutingPolicy().activeEndpoints(statement)));
+            shared = inflight.putIfAbsent(key, entry);
+            if (shared == null) {
+                CassandraSession.ResultFuture leader;
+                try {
+                    leader = session.executeAsync(statement, queryParameters, entry.context);
+                } catch (RuntimeException e) {
+                    inflight.remove(key, entry);
+                    entry.promise.tryFailure(e);
+                    throw e;
+                }
+                leader.promise().addListener(new GenericFutureListener<Future<CassandraMessage.Result>>() {
+                    @Override
+                    public void operationComplete(Future<CassandraMessage.Result> f) throws Exception {
+                        inflight.remove(key, entry);
+                        if (f.isSuccess()) {
+                            entry.promise.trySuccess(f.getNow());
+                        } else {
+                            entry.promise.tryFailure(f.cause());
+                        }
+                    }
+                });
+                shared = entry;
+                leading = true;
+            }
+        }
+        if (!leading) {
+            coalesced.incrementAndGet();
+        }
+        final CassandraSession.ResultFuture future = session.new ResultFuture(session, shared.context);
+        shared.promise.addListener(new GenericFutureListener<Future<CassandraMessage.Result>>() {
+            @Override
+            public void operationComplete(Future<CassandraMessage.Result> f) throws Exception {
+                if (f.isSuccess()) {
+                    future.promise().trySuccess(duplicate(f.getNow()));
+                } else {
+                    future.promise().tryFailure(f.cause());
+                }
+            }
+        });
+        return future;
+    }
+
+    private static CassandraMessage.Result duplicate(CassandraMessage.Result result) {
+        if (result.kind != CassandraMessage.Result.Kind.ROWS) {
+            return result;
+        }
+        CassandraMessage.Result.Rows rows = (CassandraMessage.Result.Rows)result;
+        Queue<List<ByteBuffer>> copy = new ArrayDeque<List<ByteBuffer>>(rows.rows.size());
+        for (List<ByteBuffer> row : rows.rows) {
+            List<ByteBuffer> values = new ArrayList<ByteBuffer>(row.size());
+            for (ByteBuffer value : row) {
+                values.add(value != null ? value.duplicate() : null);
+            }
+            copy.add(values);
+        }
+        ByteBuffer pagingState = rows.metadata.pagingState;
+        CassandraMessage.Metadata metadata = new CassandraMessage.Metadata(rows.metadata.columnCount, rows.metadata.columns, pagingState != null ? pagingState.duplicate() : null);
+        return new CassandraMessage.Result.Rows(metadata, copy);
+    }
+
+    private static class Entry {
+
+        private final RetryContext context;
+        private final Promise<CassandraMessage.Result> promise;
+
+        private Entry(RetryContext context) {
+            this.context = context;
+            promise = new DefaultPromise<CassandraMessage.Result>(GlobalEventExecutor.INSTANCE);
+        }
+    }
+
+    private static class Key {
+
+        private final Object stringOrId;
+        private final String keyspace;
+        private final ByteBuffer[] values;
+        private final CassandraMessage.QueryParameters queryParameters;
+        private final int hash;
+
+        private Key(AbstractStatement<?> statement, CassandraMessage.QueryParameters queryParameters) {
+            PreparedStatement pstmt = PreparedStatement.definitionOf(statement);
+            stringOrId = pstmt != null ? pstmt.getId() : statement.getQuery();
+            keyspace = statement.getKeyspace();
+            values = queryParameters.values != null ? queryParameters.values.clone() : null;
+            this.queryParameters = queryParameters;
+            int h = stringOrId.hashCode();
+            h = 31 * h + (keyspace != null ? keyspace.hashCode() : 0);
+            h = 31 * h + Arrays.hashCode(values);
+            h = 31 * h + queryParameters.consistency.hashCode();
+            hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key)o;
+            CassandraMessage.QueryParameters other = key.queryParameters;
+            return hash == key.hash
+                    && stringOrId.equals(key.stringOrId)
+                    && (keyspace != null ? keyspace.equals(key.keyspace) : key.keyspace == null)
+                    && Arrays.equals(values, key.values)
+                    && queryParameters.consistency == other.consistency
+                    && queryParameters.serialConsistency == other.serialConsistency
+                    && queryParameters.pageSize == other.pageSize
+                    && (queryParameters.pagingState != null ? queryParameters.pagingState.equals(other.pagingState) : other.pagingState == null);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package cassandra;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+class RequestBudget {
+
+    private static final long COST = 100;
+
+    private final int percent;
+    private final long capacity;
+    private final AtomicLong credits, acquired;
+
+    RequestBudget(int percent, int burst, boolean full) {
+        if (percent < 0) {
+            throw new IllegalArgumentException(String.format("percent: %d (expected: >= 0)", percent));
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException(String.format("burst: %d (expected: > 0)", burst));
+        }
+        this.percent = percent;
+        capacity = burst * COST;
+        credits = new AtomicLong(full ? capacity : 0);
+        acquired = new AtomicLong();
+    }
+
+    void credit() {
+        for (;;) {
+            long current = credits.get();
+            if (current >= capacity || credits.compareAndSet(current, Math.min(capacity, current + percent))) {
+                return;
+            }
+        }
+    }
+
+    boolean tryAcquire() {
+        for (;;) {
+            long current = credits.get();
+            if (current < COST) {
+                return false;
+            }
+            if (credits.compareAndSet(current, current - COST)) {
+                acquired.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    long acquiredCount() {
+        return acquired.get();
+    }
+}
@@ -0,0 +1,159 @@
+package cassandra;
+
+import cassandra.cql.AbstractStatement;
+import cassandra.protocol.CassandraMessage;
+import cassandra.retry.RetryContext;
+import cassandra.speculative.SpeculativeExecutionPolicy;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.PlatformDependent;
+
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SpeculativeExecution {
+
+    private static final CancellationException CANCELLED = new CancellationException("speculative execution lost");
+
+    private final CassandraSession session;
+    private final CassandraCluster.Client cluster;
+    private final AbstractStatement<?> statement;
+    private final CassandraMessage.QueryParameters queryParameters;
+    private final SpeculativeExecutionPolicy policy;
+    private final CassandraSession.ResultFuture future;
+    private final List<CassandraSession.ResultFuture> executions;
+    private final Set<InetAddress> endpoints;
+    private final AtomicInteger pending;
+    private volatile ScheduledFuture<?> timer;
+
+    SpeculativeExecution(CassandraSession session, CassandraCluster.Client cluster, AbstractStatement<?> statement, CassandraMessage.QueryParameters queryParameters, SpeculativeExecutionPolicy policy, CassandraSession.ResultFuture first) {
+        this.session = session;
+        this.cluster = cluster;
+        this.statement = statement;
+        this.queryParameters = queryParameters;
+        this.policy = policy;
+        future = session.new ResultFuture(session, first.context());
+        executions = new CopyOnWriteArrayList<CassandraSession.ResultFuture>();
+        endpoints = Collections.newSetFromMap(PlatformDependent.<InetAddress, Boolean>newConcurrentHashMap());
+        pending = new AtomicInteger();
+        future.promise().addListener(new GenericFutureListener<Future<CassandraMessage.Result>>() {
+            @Override
+            public void operationComplete(Future<CassandraMessage.Result> f) throws Exception {
+                ScheduledFuture<?> timer = SpeculativeExecution.this.timer;
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+                for (CassandraSession.ResultFuture execution : executions) {
+                    execution.promise().tryFailure(CANCELLED);
+                }
+            }
+        });
+        cluster.creditSpeculativeExecution();
+        add(first);
+    }
+
+    CassandraSession.ResultFuture execute() {
+        schedule(executions.get(0).context().getCurrentEndpoint());
+        return future;
+    }
+
+    private void add(CassandraSession.ResultFuture execution) {
+        pending.incrementAndGet();
+        executions.add(execution);
+        endpoints.add(execution.context().getCurrentEndpoint());
+        execution.promise().addListener(new GenericFutureListener<Future<CassandraMessage.Result>>() {
+            @Override
+            public void operationComplete(Future<CassandraMessage.Result> f) throws Exception {
+                if (f.isSuccess()) {
+                    future.promise().trySuccess(f.getNow());
+                } else if (f.cause() != CANCELLED && pending.decrementAndGet() == 0) {
+                    future.promise().tryFailure(f.cause());
+                }
+            }
+        });
+        if (future.promise().isDone()) {
+            execution.promise().tryFailure(CANCELLED);
+        }
+    }
+
+    private void schedule(InetAddress endpoint) {
+        if (future.promise().isDone() || endpoint == null) {
+            return;
+        }
+        long delay = policy.nextExecution(endpoint, executions.size());
+        if (delay < 0) {
+            return;
+        }
+        pending.incrementAndGet();
+        timer = CassandraDriver.getGlobalEventExecutor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    speculate();
+                } finally {
+                    if (pending.decrementAndGet() == 0) {
+                        future.promise().tryFailure(executions.get(executions.size() - 1).promise().cause());
+                    }
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void speculate() {
+        if (future.promise().isDone()) {
+            return;
+        }
+        Iterator<InetAddress> plan = new Iterator<InetAddress>() {
+
+            private final Iterator<InetAddress> child = statement.getRoutingPolicy().activeEndpoints(statement);
+            private InetAddress next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && child.hasNext()) {
+                    InetAddress endpoint = child.next();
+                    if (endpoint != null && !endpoints.contains(endpoint)) {
+                        next = endpoint;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public InetAddress next() {
+                InetAddress endpoint = null;
+                if (hasNext()) {
+                    endpoint = next;
+                    next = null;
+                }
+                return endpoint;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+        if (!plan.hasNext() || !cluster.acquireSpeculativeExecution()) {
+            return;
+        }
+        RetryContext context = new RetryContext(statement.getRetryPolicy(), plan);
+        CassandraSession.ResultFuture execution = session.new ResultFuture(session, context);
+        add(execution);
+        try {
+            session.execute(session.newRequest(statement, queryParameters), execution);
+        } catch (RuntimeException e) {
+            execution.promise().tryFailure(e);
+            return;
+        }
+        schedule(context.getCurrentEndpoint());
+    }
+}
@@ -1,12 +1,19 @@
 package cassandra.cql;
 
 import cassandra.CassandraSession;
+import cassandra.cql.type.CQL3Type;
 import cassandra.metadata.KeyspaceMetadata;
+import cassandra.metadata.Partitioner;
 import cassandra.retry.RetryPolicy;
 import cassandra.routing.DCAwareRoundRobinPolicy;
+import cassandra.routing.RackAwareRoundRobinPolicy;
 import cassandra.routing.RoutingPolicy;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
 import java.nio.ByteBuffer;
+import java.util.*;
 
 public abstract class AbstractStatement<S extends AbstractStatement<S>> implements Cloneable {
 
@@ -21,6 +28,7 @@ public abstract class AbstractStatement<S extends AbstractStatement<S>> implemen
     private RoutingPolicy routingPolicy;
     private RetryPolicy retryPolicy;
     private boolean traceQuery;
+    private Boolean idempotent;
 
     AbstractStatement() {
     }
@@ -36,14 +44,30 @@ public abstract class AbstractStatement<S extends AbstractStatement<S>> implemen
         setRoutingPolicy(statement.routingPolicy);
         setRetryPolicy(statement.retryPolicy);
         setTraceQuery(statement.traceQuery);
+        idempotent = statement.idempotent;
         if (statement.hasParameters()) {
             parameters = new ByteBuffer[statement.getParameters().length];
             for (int i = 0; i < statement.getParameters().length; i++) {
-                parameters[i] = statement.getParameters()[i].duplicate();
+                ByteBuffer parameter = statement.getParameters()[i];
+                parameters[i] = parameter != null ? parameter.duplicate() : null;
             }
         }
     }
 
+    AbstractStatement(AbstractStatement<?> statement, ByteBuffer[] parameters) {
+        session = statement.session;
+        keyspace = statement.keyspace;
+        query = statement.query;
+        pageSizeLimit = statement.pageSizeLimit;
+        consistency = statement.consistency;
+        serialConsistency = statement.serialConsistency;
+        routingPolicy = statement.routingPolicy;
+        retryPolicy = statement.retryPolicy;
+        traceQuery = statement.traceQuery;
+        idempotent = statement.idempotent;
+        this.parameters = parameters;
+    }
+
     public CassandraSession getSession() {
         return session;
     }
@@ -130,6 +154,26 @@ public abstract class AbstractStatement<S extends AbstractStatement<S>> implemen
         return routingKey;
     }
 
+    public Partitioner.Token getToken(Partitioner partitioner) {
+        if (partitioner instanceof Partitioner.Murmur3Partitioner) {
+            long value = getRoutingToken((Partitioner.Murmur3Partitioner)partitioner);
+            return value == Long.MIN_VALUE ? null : new Partitioner.Murmur3Partitioner.LongToken(value);
+        }
+        RoutingKey routingKey = getRoutingKey();
+        if (routingKey == null) {
+            return null;
+        }
+        return partitioner.getToken(routingKey.asByteBuffer());
+    }
+
+    public long getRoutingToken(Partitioner.Murmur3Partitioner partitioner) {
+        RoutingKey routingKey = getRoutingKey();
+        if (routingKey == null) {
+            return Long.MIN_VALUE;
+        }
+        return partitioner.getTokenValue(routingKey.asByteBuffer());
+    }
+
     @SuppressWarnings("unchecked")
     public S setRoutingKey(RoutingKey routingKey) {
         this.routingKey = routingKey;
@@ -188,6 +232,23 @@ public abstract class AbstractStatement<S extends AbstractStatement<S>> implemen
         return (S)this;
     }
 
+    public boolean isIdempotent() {
+        if (idempotent != null) {
+            return idempotent;
+        }
+        return isSelect();
+    }
+
+    public boolean isSelect() {
+        return query != null && query.regionMatches(true, skipWhitespace(query), "SELECT", 0, 6);
+    }
+
+    @SuppressWarnings("unchecked")
+    public S setIdempotent(boolean idempotent) {
+        this.idempotent = idempotent;
+        return (S)this;
+    }
+
     public int getPageSizeLimit() {
         return pageSizeLimit;
     }
@@ -233,6 +294,8 @@ public abstract class AbstractStatement<S extends AbstractStatement<S>> implemen
         this.routingPolicy = routingPolicy;
         if (this.routingPolicy instanceof DCAwareRoundRobinPolicy) {
             ((DCAwareRoundRobinPolicy)this.routingPolicy).init(session.metadata());
+        } else if (this.routingPolicy instanceof RackAwareRoundRobinPolicy) {
+            ((RackAwareRoundRobinPolicy)this.routingPolicy).init(session.metadata());
         }
         return (S)this;
     }
@@ -251,7 +314,221 @@ public abstract class AbstractStatement<S extends AbstractStatement<S>> implemen
         return session.executeAsync(this);
     }
 
+    RowMetadata parameterMetadata() {
+        throw new UnsupportedOperationException(String.format("typed parameters are not supported by %s", getClass().getSimpleName()));
+    }
+
+    public S setBool(int column, boolean value) {
+        return setValue(column, CQL3Type.Name.BOOLEAN, value);
+    }
+
+    public S setBool(String column, boolean value) {
+        return setValue(column, CQL3Type.Name.BOOLEAN, value);
+    }
+
+    public S setBlob(int column, ByteBuffer value) {
+        return setValue(column, CQL3Type.Name.BLOB, value);
+    }
+
+    public S setBlob(String column, ByteBuffer value) {
+        return setValue(column, CQL3Type.Name.BLOB, value);
+    }
+
+    public S setDate(int column, Date value) {
+        return setValue(column, CQL3Type.Name.TIMESTAMP, value);
+    }
+
+    public S setDate(String column, Date value) {
+        return setValue(column, CQL3Type.Name.TIMESTAMP, value);
+    }
+
+    public S setDecimal(int column, BigDecimal value) {
+        return setValue(column, CQL3Type.Name.DECIMAL, value);
+    }
+
+    public S setDecimal(String column, BigDecimal value) {
+        return setValue(column, CQL3Type.Name.DECIMAL, value);
+    }
+
+    public S setDouble(int column, double value) {
+        return setValue(column, CQL3Type.Name.DOUBLE, value);
+    }
+
+    public S setDouble(String column, double value) {
+        return setValue(column, CQL3Type.Name.DOUBLE, value);
+    }
+
+    public S setFloat(int column, float value) {
+        return setValue(column, CQL3Type.Name.FLOAT, value);
+    }
+
+    public S setFloat(String column, float value) {
+        return setValue(column, CQL3Type.Name.FLOAT, value);
+    }
+
+    public S setInt(int column, int value) {
+        return setValue(column, CQL3Type.Name.INT, value);
+    }
+
+    public S setInt(String column, int value) {
+        return setValue(column, CQL3Type.Name.INT, value);
+    }
+
+    public S setLong(int column, long value) {
+        return setValue(column, CQL3Type.Name.BIGINT, value);
+    }
+
+    public S setLong(String column, long value) {
+        return setValue(column, CQL3Type.Name.BIGINT, value);
+    }
+
+    public S setString(int column, String value) {
+        return setValue(column, CQL3Type.Name.VARCHAR, CQL3Type.Name.TEXT, CQL3Type.Name.ASCII, value);
+    }
+
+    public S setString(String column, String value) {
+        return setValue(column, CQL3Type.Name.VARCHAR, CQL3Type.Name.TEXT, CQL3Type.Name.ASCII, value);
+    }
+
+    public S setInet(int column, InetAddress value) {
+        return setValue(column, CQL3Type.Name.INET, value);
+    }
+
+    public S setInet(String column, InetAddress value) {
+        return setValue(column, CQL3Type.Name.INET, value);
+    }
+
+    public S setVarint(int column, BigInteger value) {
+        return setValue(column, CQL3Type.Name.VARINT, value);
+    }
+
+    public S setVarint(String column, BigInteger value) {
+        return setValue(column, CQL3Type.Name.VARINT, value);
+    }
+
+    public S setUUID(int column, UUID value) {
+        return setValue(column, CQL3Type.Name.UUID, value);
+    }
+
+    public S setUUID(String column, UUID value) {
+        return setValue(column, CQL3Type.Name.UUID, value);
+    }
+
+    public S setList(int column, List<?> value) {
+        return setValue(column, CQL3Type.Name.LIST, value);
+    }
+
+    public S setList(String column, List<?> value) {
+        return setValue(column, CQL3Type.Name.LIST, value);
+    }
+
+    public S setSet(int column, Set<?> value) {
+        return setValue(column, CQL3Type.Name.SET, value);
+    }
+
+    public S setSet(String column, Set<?> value) {
+        return setValue(column, CQL3Type.Name.SET, value);
+    }
+
+    public S setMap(int column, Map<?, ?> value) {
+        return setValue(column, CQL3Type.Name.MAP, value);
+    }
+
+    public S setMap(String column, Map<?, ?> value) {
+        return setValue(column, CQL3Type.Name.MAP, value);
+    }
+
+    public S setObject(int column, Object value) {
+        return setValue(column, parameterMetadata().getColumnType(column), value);
+    }
+
+    public S setObject(String column, Object value) {
+        int[] idxs = parameterMetadata().getColumnIndexArray(column);
+        CQL3Type columnType = parameterMetadata().getColumnType(idxs[0]);
+        if (value != null) {
+            for (int i = 1; i < idxs.length; i++) {
+                parameterMetadata().validateColumnType(idxs[i], columnType, value);
+            }
+        }
+        return setValue(idxs, columnType, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public S setRawValue(int column, ByteBuffer value) {
+        getParameters()[column] = value;
+        return (S)this;
+    }
+
+    private S setValue(int index, CQL3Type.Name name, Object value) {
+        return setValue(index, parameterMetadata().validateColumnType(index, name), value);
+    }
+
+    private S setValue(int index, CQL3Type.Name name1, CQL3Type.Name name2, Object value) {
+        return setValue(index, parameterMetadata().validateColumnType(index, name1, name2), value);
+    }
+
+    private S setValue(int index, CQL3Type.Name name1, CQL3Type.Name name2, CQL3Type.Name name3, Object value) {
+        return setValue(index, parameterMetadata().validateColumnType(index, name1, name2, name3), value);
+    }
+
+    private S setValue(String column, CQL3Type.Name name, Object value) {
+        int[] idxs = parameterMetadata().getColumnIndexArray(column);
+        CQL3Type columnType = null;
+        for (int index : idxs) {
+            columnType = parameterMetadata().validateColumnType(index, name);
+        }
+        return setValue(idxs, columnType, value);
+    }
+
+    private S setValue(String column, CQL3Type.Name name1, CQL3Type.Name name2, Object value) {
+        int[] idxs = parameterMetadata().getColumnIndexArray(column);
+        CQL3Type columnType = null;
+        for (int index : idxs) {
+            columnType = parameterMetadata().validateColumnType(index, name1, name2);
+        }
+        return setValue(idxs, columnType, value);
+    }
+
+    private S setValue(String column, CQL3Type.Name name1, CQL3Type.Name name2, CQL3Type.Name name3, Object value) {
+        int[] idxs = parameterMetadata().getColumnIndexArray(column);
+        CQL3Type columnType = null;
+        for (int index : idxs) {
+            columnType = parameterMetadata().validateColumnType(index, name1, name2, name3);
+        }
+        return setValue(idxs, columnType, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private S setValue(int index, CQL3Type columnType, Object value) {
+        if (value == null) {
+            getParameters()[index] = null;
+        } else {
+            getParameters()[index] = parameterMetadata().validateColumnType(index, columnType, value).serialize(value);
+        }
+        return (S)this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private S setValue(int[] idxs, CQL3Type columnType, Object value) {
+        ByteBuffer buf = null;
+        if (value != null) {
+            buf = parameterMetadata().validateColumnType(idxs[0], columnType, value).serialize(value);
+        }
+        for (int index : idxs) {
+            getParameters()[index] = buf;
+        }
+        return (S)this;
+    }
+
     @Override
     @SuppressWarnings("CloneDoesntDeclareCloneNotSupportedException")
     public abstract S clone();
+
+    private static int skipWhitespace(String query) {
+        int i = 0;
+        while (i < query.length() && Character.isWhitespace(query.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
 }
@@ -1,10 +1,14 @@
 package cassandra.cql;
 
 import cassandra.CassandraSession;
+import cassandra.metadata.Metadata;
+import cassandra.metadata.Partitioner;
+import cassandra.protocol.CassandraMessage;
+import cassandra.routing.PreferredEndpointPolicy;
+import cassandra.routing.RoutingPolicy;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.net.InetAddress;
+import java.util.*;
 
 public class BatchStatement extends AbstractStatement<BatchStatement> implements Iterable<AbstractStatement<?>> {
 
@@ -33,6 +37,8 @@ public class BatchStatement extends AbstractStatement<BatchStatement> implements
 
     private final List<AbstractStatement<?>> statements;
     private Type type;
+    private int maxChunkStatements, maxChunkBytes;
+    private boolean splitLogged, groupByReplica;
 
     public BatchStatement(CassandraSession session) {
         setSession(session);
@@ -47,6 +53,16 @@ public class BatchStatement extends AbstractStatement<BatchStatement> implements
             statements.add(stmt.clone());
         }
         type = statement.type;
+        maxChunkStatements = statement.maxChunkStatements;
+        maxChunkBytes = statement.maxChunkBytes;
+        splitLogged = statement.splitLogged;
+        groupByReplica = statement.groupByReplica;
+    }
+
+    private BatchStatement(BatchStatement statement, List<AbstractStatement<?>> statements) {
+        super(statement);
+        this.statements = statements;
+        type = statement.type;
     }
 
     public Type getType() {
@@ -61,6 +77,136 @@ public class BatchStatement extends AbstractStatement<BatchStatement> implements
         return this;
     }
 
+    public int getMaxChunkStatements() {
+        return maxChunkStatements;
+    }
+
+    public BatchStatement setMaxChunkStatements(int maxChunkStatements) {
+        if (maxChunkStatements < 0) {
+            throw new IllegalArgumentException(String.format("maxChunkStatements: %d (expected: >= 0)", maxChunkStatements));
+        }
+        this.maxChunkStatements = maxChunkStatements;
+        return this;
+    }
+
+    public int getMaxChunkBytes() {
+        return maxChunkBytes;
+    }
+
+    public BatchStatement setMaxChunkBytes(int maxChunkBytes) {
+        if (maxChunkBytes < 0) {
+            throw new IllegalArgumentException(String.format("maxChunkBytes: %d (expected: >= 0)", maxChunkBytes));
+        }
+        this.maxChunkBytes = maxChunkBytes;
+        return this;
+    }
+
+    public boolean isSplitLogged() {
+        return splitLogged;
+    }
+
+    public BatchStatement setSplitLogged(boolean splitLogged) {
+        this.splitLogged = splitLogged;
+        return this;
+    }
+
+    public boolean isGroupByReplica() {
+        return groupByReplica;
+    }
+
+    public BatchStatement setGroupByReplica(boolean groupByReplica) {
+        this.groupByReplica = groupByReplica;
+        return this;
+    }
+
+    public List<BatchStatement> split() {
+        if (!groupByReplica) {
+            return split(statements, null);
+        }
+        if (type == Type.LOGGED) {
+            throw new IllegalStateException("LOGGED batch cannot be grouped by replica");
+        }
+        List<BatchStatement> chunks = new ArrayList<BatchStatement>();
+        for (Map.Entry<InetAddress, List<AbstractStatement<?>>> group : groupByReplica().entrySet()) {
+            chunks.addAll(split(group.getValue(), group.getKey()));
+        }
+        return chunks;
+    }
+
+    public Map<InetAddress, List<AbstractStatement<?>>> groupByReplica() {
+        Metadata metadata = getSession().metadata();
+        Partitioner partitioner = metadata.getPartitioner();
+        Map<InetAddress, List<AbstractStatement<?>>> groups = new LinkedHashMap<InetAddress, List<AbstractStatement<?>>>();
+        List<AbstractStatement<?>> unrouted = null;
+        for (AbstractStatement<?> statement : statements) {
+            InetAddress replica = partitioner != null ? primaryReplica(metadata, partitioner, statement, getRoutingPolicy()) : null;
+            if (replica == null) {
+                if (unrouted == null) {
+                    unrouted = new ArrayList<AbstractStatement<?>>();
+                }
+                unrouted.add(statement);
+                continue;
+            }
+            List<AbstractStatement<?>> group = groups.get(replica);
+            if (group == null) {
+                group = new ArrayList<AbstractStatement<?>>();
+                groups.put(replica, group);
+            }
+            group.add(statement);
+        }
+        if (unrouted != null) {
+            groups.put(null, unrouted);
+        }
+        return groups;
+    }
+
+    private List<BatchStatement> split(List<AbstractStatement<?>> statements, InetAddress replica) {
+        if (replica == null && statements == this.statements && (maxChunkStatements == 0 || statements.size() <= maxChunkStatements) && maxChunkBytes == 0) {
+            return Collections.singletonList(this);
+        }
+        List<BatchStatement> chunks = new ArrayList<BatchStatement>();
+        List<AbstractStatement<?>> chunk = new ArrayList<AbstractStatement<?>>();
+        int chunkBytes = 0;
+        for (AbstractStatement<?> statement : statements) {
+            int bytes = maxChunkBytes > 0 ? CassandraMessage.Batch.QueryValue.valueOf(statement).getApproximateSize() : 0;
+            if (!chunk.isEmpty() && ((maxChunkStatements > 0 && chunk.size() >= maxChunkStatements) || (maxChunkBytes > 0 && chunkBytes + bytes > maxChunkBytes))) {
+                chunks.add(newChunk(chunk, replica));
+                chunk = new ArrayList<AbstractStatement<?>>();
+                chunkBytes = 0;
+            }
+            chunk.add(statement);
+            chunkBytes += bytes;
+        }
+        if (chunks.isEmpty() && statements == this.statements) {
+            return Collections.singletonList(this);
+        }
+        chunks.add(newChunk(chunk, replica));
+        if (chunks.size() > 1 && type == Type.LOGGED && !splitLogged) {
+            throw new IllegalStateException(String.format("LOGGED batch exceeds chunk limits: %d statements into %d chunks (splitting not allowed)", statements.size(), chunks.size()));
+        }
+        return chunks;
+    }
+
+    private BatchStatement newChunk(List<AbstractStatement<?>> statements, InetAddress replica) {
+        BatchStatement chunk = new BatchStatement(this, statements);
+        if (replica != null) {
+            chunk.setRoutingPolicy(new PreferredEndpointPolicy(replica, getRoutingPolicy()));
+        }
+        return chunk;
+    }
+
+    private static InetAddress primaryReplica(Metadata metadata, Partitioner partitioner, AbstractStatement<?> statement, RoutingPolicy routingPolicy) {
+        String keyspace = statement.getKeyspace();
+        if (keyspace == null) {
+            return null;
+        }
+        Partitioner.Token token = statement.getToken(partitioner);
+        if (token == null) {
+            return null;
+        }
+        return metadata.getPrimaryReplica(keyspace, token, routingPolicy);
+    }
+
     public BatchStatement add(AbstractStatement<?> statement) {
         if (statement == null) {
             throw new NullPointerException("statement");
@@ -0,0 +1,84 @@
+package cassandra.cql;
+
+import cassandra.metadata.Partitioner;
+
+import java.nio.ByteBuffer;
+
+public class BoundStatement extends AbstractStatement<BoundStatement> {
+
+    private final PreparedStatement pstmt;
+
+    BoundStatement(PreparedStatement pstmt, ByteBuffer[] parameters) {
+        super(pstmt, parameters);
+        this.pstmt = pstmt;
+    }
+
+    private BoundStatement(BoundStatement bound, ByteBuffer[] parameters) {
+        super(bound, parameters);
+        pstmt = bound.pstmt;
+        setRoutingKey(bound.getExplicitRoutingKey());
+    }
+
+    public PreparedStatement getPreparedStatement() {
+        return pstmt;
+    }
+
+    public PreparedStatement.StatementId getId() {
+        return pstmt.getId();
+    }
+
+    public RowMetadata getMetadata() {
+        return pstmt.getMetadata();
+    }
+
+    public RowMetadata getParameterMetadata() {
+        return pstmt.getParameterMetadata();
+    }
+
+    @Override
+    RowMetadata parameterMetadata() {
+        return pstmt.getParameterMetadata();
+    }
+
+    public BoundStatement bind(Object... values) {
+        if (values == null) {
+            throw new NullPointerException("values");
+        }
+        if (values.length > pstmt.getParameterMetadata().getColumnCount()) {
+            throw new IllegalArgumentException(String.format("number of bound variables does not match number of parameters: %d (expected: %d)", values.length, pstmt.getParameterMetadata().getColumnCount()));
+        }
+        for (int i = 0; i < values.length; i++) {
+            setObject(i, values[i]);
+        }
+        return this;
+    }
+
+    @Override
+    public RoutingKey getRoutingKey() {
+        RoutingKey routingKey = super.getRoutingKey();
+        if (routingKey != null) {
+            return routingKey;
+        }
+        return pstmt.getRoutingKey(getParameters());
+    }
+
+    @Override
+    public long getRoutingToken(Partitioner.Murmur3Partitioner partitioner) {
+        RoutingKey routingKey = super.getRoutingKey();
+        if (routingKey != null) {
+            return partitioner.getTokenValue(routingKey.asByteBuffer());
+        }
+        return pstmt.getRoutingToken(partitioner, getParameters());
+    }
+
+    @Override
+    @SuppressWarnings("CloneDoesntCallSuperClone")
+    public BoundStatement clone() {
+        ByteBuffer[] parameters = getParameters();
+        return new BoundStatement(this, parameters.length == 0 ? parameters : parameters.clone());
+    }
+
+    private RoutingKey getExplicitRoutingKey() {
+        return super.getRoutingKey();
+    }
+}
@@ -1,14 +1,10 @@
 package cassandra.cql;
 
 import cassandra.CassandraSession;
-import cassandra.cql.type.CQL3Type;
 import cassandra.metadata.ColumnMetadata;
 import cassandra.metadata.Partitioner;
 import cassandra.metadata.TableMetadata;
 
-import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.net.InetAddress;
 import java.nio.ByteBuffer;
 import java.util.*;
 
@@ -46,10 +42,22 @@ public class PreparedStatement extends AbstractStatement<PreparedStatement> {
         }
     }
 
+    private static final ByteBuffer[] EMPTY_PARAMETERS = new ByteBuffer[0];
+
     private final StatementId id;
     private final RowMetadata metadata, parameterMetadata;
     private final int[] partitionKeyIndexes;
 
+    public static PreparedStatement definitionOf(AbstractStatement<?> statement) {
+        if (statement instanceof PreparedStatement) {
+            return (PreparedStatement)statement;
+        }
+        if (statement instanceof BoundStatement) {
+            return ((BoundStatement)statement).getPreparedStatement();
+        }
+        return null;
+    }
+
     public PreparedStatement(CassandraSession session, StatementId id, String query, RowMetadata metadata, RowMetadata parameterMetadata) {
         this.id = id;
         this.metadata = metadata;
@@ -113,144 +121,9 @@ public class PreparedStatement extends AbstractStatement<PreparedStatement> {
         return parameterMetadata;
     }
 
-    public PreparedStatement setBool(int column, boolean value) {
-        return setValue(column, CQL3Type.Name.BOOLEAN, value);
-    }
-
-    public PreparedStatement setBool(String column, boolean value) {
-        return setValue(column, CQL3Type.Name.BOOLEAN, value);
-    }
-
-    public PreparedStatement setBlob(int column, ByteBuffer value) {
-        return setValue(column, CQL3Type.Name.BLOB, value);
-    }
-
-    public PreparedStatement setBlob(String column, ByteBuffer value) {
-        return setValue(column, CQL3Type.Name.BLOB, value);
-    }
-
-    public PreparedStatement setDate(int column, Date value) {
-        return setValue(column, CQL3Type.Name.TIMESTAMP, value);
-    }
-
-    public PreparedStatement setDate(String column, Date value) {
-        return setValue(column, CQL3Type.Name.TIMESTAMP, value);
-    }
-
-    public PreparedStatement setDecimal(int column, BigDecimal value) {
-        return setValue(column, CQL3Type.Name.DECIMAL, value);
-    }
-
-    public PreparedStatement setDecimal(String column, BigDecimal value) {
-        return setValue(column, CQL3Type.Name.DECIMAL, value);
-    }
-
-    public PreparedStatement setDouble(int column, double value) {
-        return setValue(column, CQL3Type.Name.DOUBLE, value);
-    }
-
-    public PreparedStatement setDouble(String column, double value) {
-        return setValue(column, CQL3Type.Name.DOUBLE, value);
-    }
-
-    public PreparedStatement setFloat(int column, float value) {
-        return setValue(column, CQL3Type.Name.FLOAT, value);
-    }
-
-    public PreparedStatement setFloat(String column, float value) {
-        return setValue(column, CQL3Type.Name.FLOAT, value);
-    }
-
-    public PreparedStatement setInt(int column, int value) {
-        return setValue(column, CQL3Type.Name.INT, value);
-    }
-
-    public PreparedStatement setInt(String column, int value) {
-        return setValue(column, CQL3Type.Name.INT, value);
-    }
-
-    public PreparedStatement setLong(int column, long value) {
-        return setValue(column, CQL3Type.Name.BIGINT, value);
-    }
-
-    public PreparedStatement setLong(String column, long value) {
-        return setValue(column, CQL3Type.Name.BIGINT, value);
-    }
-
-    public PreparedStatement setString(int column, String value) {
-        return setValue(column, CQL3Type.Name.VARCHAR, CQL3Type.Name.TEXT, CQL3Type.Name.ASCII, value);
-    }
-
-    public PreparedStatement setString(String column, String value) {
-        return setValue(column, CQL3Type.Name.VARCHAR, CQL3Type.Name.TEXT, CQL3Type.Name.ASCII, value);
-    }
-
-    public PreparedStatement setInet(int column, InetAddress value) {
-        return setValue(column, CQL3Type.Name.INET, value);
-    }
-
-    public PreparedStatement setInet(String column, InetAddress value) {
-        return setValue(column, CQL3Type.Name.INET, value);
-    }
-
-    public PreparedStatement setVarint(int column, BigInteger value) {
-        return setValue(column, CQL3Type.Name.VARINT, value);
-    }
-
-    public PreparedStatement setVarint(String column, BigInteger value) {
-        return setValue(column, CQL3Type.Name.VARINT, value);
-    }
-
-    public PreparedStatement setUUID(int column, UUID value) {
-        return setValue(column, CQL3Type.Name.UUID, value);
-    }
-
-    public PreparedStatement setUUID(String column, UUID value) {
-        return setValue(column, CQL3Type.Name.UUID, value);
-    }
-
-    public PreparedStatement setList(int column, List<?> value) {
-        return setValue(column, CQL3Type.Name.LIST, value);
-    }
-
-    public PreparedStatement setList(String column, List<?> value) {
-        return setValue(column, CQL3Type.Name.LIST, value);
-    }
-
-    public PreparedStatement setSet(int column, Set<?> value) {
-        return setValue(column, CQL3Type.Name.SET, value);
-    }
-
-    public PreparedStatement setSet(String column, Set<?> value) {
-        return setValue(column, CQL3Type.Name.SET, value);
-    }
-
-    public PreparedStatement setMap(int column, Map<?, ?> value) {
-        return setValue(column, CQL3Type.Name.MAP, value);
-    }
-
-    public PreparedStatement setMap(String column, Map<?, ?> value) {
-        return setValue(column, CQL3Type.Name.MAP, value);
-    }
-
-    public PreparedStatement setObject(int column, Object value) {
-        return setValue(column, getParameterMetadata().getColumnType(column), value);
-    }
-
-    public PreparedStatement setObject(String column, Object value) {
-        int[] idxs = getParameterMetadata().getColumnIndexArray(column);
-        ByteBuffer buf = null;
-        if (value != null) {
-            CQL3Type columnType = getParameterMetadata().getColumnType(idxs[0]);
-            for (int i = 1; i < idxs.length; i++) {
-                getParameterMetadata().validateColumnType(idxs[i], columnType, value);
-            }
-            buf = columnType.serialize(value);
-        }
-        for (int index : idxs) {
-            getParameters()[index] = buf;
-        }
-        return this;
+    @Override
+    RowMetadata parameterMetadata() {
+        return parameterMetadata;
     }
 
     public PreparedStatement bind(Object... values) {
@@ -269,88 +142,63 @@ public class PreparedStatement extends AbstractStatement<PreparedStatement> {
         return this;
     }
 
+    public BoundStatement newBoundStatement() {
+        int count = parameterMetadata != null ? parameterMetadata.getColumnCount() : 0;
+        return new BoundStatement(this, count == 0 ? EMPTY_PARAMETERS : new ByteBuffer[count]);
+    }
+
+    public BoundStatement newBoundStatement(Object... values) {
+        return newBoundStatement().bind(values);
+    }
+
     @Override
     public RoutingKey getRoutingKey() {
         RoutingKey routingKey = super.getRoutingKey();
         if (routingKey != null) {
             return routingKey;
         }
-        if (partitionKeyIndexes != null) {
-            ByteBuffer[] keys = new ByteBuffer[partitionKeyIndexes.length];
-            for (int i = 0; i < keys.length; i++) {
-                ByteBuffer value = getParameters()[partitionKeyIndexes[i]];
-                if (value == null) {
-                    return null;
-                }
-                keys[i] = value;
-            }
-            routingKey = RoutingKey.copyFrom(keys);
-        }
-        return routingKey;
+        return getRoutingKey(getParameters());
     }
 
     @Override
-    @SuppressWarnings("CloneDoesntCallSuperClone")
-    public PreparedStatement clone() {
-        return new PreparedStatement(this);
-    }
-
-    private PreparedStatement setValue(int index, CQL3Type.Name name, Object value) {
-        return setValue(index, getParameterMetadata().validateColumnType(index, name), value);
-    }
-
-    private PreparedStatement setValue(int index, CQL3Type.Name name1, CQL3Type.Name name2, Object value) {
-        return setValue(index, getParameterMetadata().validateColumnType(index, name1, name2), value);
-    }
-
-    private PreparedStatement setValue(int index, CQL3Type.Name name1, CQL3Type.Name name2, CQL3Type.Name name3, Object value) {
-        return setValue(index, getParameterMetadata().validateColumnType(index, name1, name2, name3), value);
-    }
-
-    private PreparedStatement setValue(String column, CQL3Type.Name name, Object value) {
-        int[] idxs = getParameterMetadata().getColumnIndexArray(column);
-        CQL3Type columnType = null;
-        for (int index : idxs) {
-            columnType = getParameterMetadata().validateColumnType(index, name);
+    public long getRoutingToken(Partitioner.Murmur3Partitioner partitioner) {
+        RoutingKey routingKey = super.getRoutingKey();
+        if (routingKey != null) {
+            return partitioner.getTokenValue(routingKey.asByteBuffer());
         }
-        return setValue(idxs, columnType, value);
+        return getRoutingToken(partitioner, getParameters());
     }
 
-    private PreparedStatement setValue(String column, CQL3Type.Name name1, CQL3Type.Name name2, Object value) {
-        int[] idxs = getParameterMetadata().getColumnIndexArray(column);
-        CQL3Type columnType = null;
-        for (int index : idxs) {
-            columnType = getParameterMetadata().validateColumnType(index, name1, name2);
+    long getRoutingToken(Partitioner.Murmur3Partitioner partitioner, ByteBuffer[] parameters) {
+        if (partitionKeyIndexes == null) {
+            return Long.MIN_VALUE;
         }
-        return setValue(idxs, columnType, value);
-    }
-
-    private PreparedStatement setValue(String column, CQL3Type.Name name1, CQL3Type.Name name2, CQL3Type.Name name3, Object value) {
-        int[] idxs = getParameterMetadata().getColumnIndexArray(column);
-        CQL3Type columnType = null;
-        for (int index : idxs) {
-            columnType = getParameterMetadata().validateColumnType(index, name1, name2, name3);
+        for (int index : partitionKeyIndexes) {
+            if (parameters[index] == null) {
+                return Long.MIN_VALUE;
+            }
         }
-        return setValue(idxs, columnType, value);
+        return partitioner.getTokenValue(parameters, partitionKeyIndexes);
     }
 
-    private PreparedStatement setValue(int index, CQL3Type columnType, Object value) {
-        if (value == null) {
-            getParameters()[index] = null;
-        } else {
-            getParameters()[index] = getParameterMetadata().validateColumnType(index, columnType, value).serialize(value);
+    RoutingKey getRoutingKey(ByteBuffer[] parameters) {
+        if (partitionKeyIndexes == null) {
+            return null;
         }
-        return this;
+        ByteBuffer[] keys = new ByteBuffer[partitionKeyIndexes.length];
+        for (int i = 0; i < keys.length; i++) {
+            ByteBuffer value = parameters[partitionKeyIndexes[i]];
+            if (value == null) {
+                return null;
+            }
+            keys[i] = value;
+        }
+        return RoutingKey.copyFrom(keys);
     }
 
-    private PreparedStatement setValue(int[] idxs, CQL3Type columnType, Object value) {
-        ByteBuffer buf = null;
-        if (value != null) {
-            buf = getParameterMetadata().validateColumnType(idxs[0], columnType, value).serialize(value);
-        }
-        for (int index : idxs) {
-            getParameters()[index] = buf;
-        }
-        return this;
+    @Override
+    @SuppressWarnings("CloneDoesntCallSuperClone")
+    public PreparedStatement clone() {
+        return new PreparedStatement(this);
     }
 }
@@ -84,6 +84,20 @@ public class ResultSet implements Iterator<Row>, Iterable<Row> {
         return list;
     }
 
+    public SpillableRowList asList(long heapBudget) {
+        hasNext();
+        SpillableRowList list = new SpillableRowList(getMetadata(), heapBudget);
+        try {
+            while (hasNext()) {
+                list.append(rows.poll());
+            }
+        } catch (RuntimeException e) {
+            list.close();
+            throw e;
+        }
+        return list;
+    }
+
     public void queryNext() {
         if (!hasMorePages()) {
             return;
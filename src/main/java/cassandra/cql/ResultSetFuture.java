@@ -43,8 +43,9 @@ public class ResultSetFuture {
             case ROWS:
                 CassandraMessage.Result.Rows rows = (CassandraMessage.Result.Rows)result;
                 RowMetadata metadata = null;
-                if (statement instanceof PreparedStatement) {
-                    metadata = ((PreparedStatement)statement).getMetadata();
+                PreparedStatement pstmt = PreparedStatement.definitionOf(statement);
+                if (pstmt != null) {
+                    metadata = pstmt.getMetadata();
                 }
                 if (rows.metadata.columns != null) {
                     metadata = new RowMetadata(rows.metadata.columns);
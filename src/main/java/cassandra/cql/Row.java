@@ -2,6 +2,7 @@ package cassandra.cql;
 
 import cassandra.cql.type.CQL3Type;
 import cassandra.cql.type.CQL3TypeError;
+import cassandra.cql.type.CollectionView;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -35,6 +36,10 @@ public class Row {
         return metadata.getColumn(column) == null || row.get(column) == null;
     }
 
+    public ByteBuffer getRawValue(int column) {
+        return row.get(column);
+    }
+
     public boolean getBool(String column) {
         return getBool(metadata.getColumnIndex(column));
     }
@@ -176,7 +181,12 @@ public class Row {
     }
 
     public String getString(int column, String defaultValue) {
-        return getValue(column, CQL3Type.Name.VARCHAR, CQL3Type.Name.TEXT, CQL3Type.Name.ASCII, defaultValue);
+        metadata.validateColumnType(column, CQL3Type.Name.VARCHAR, CQL3Type.Name.TEXT, CQL3Type.Name.ASCII);
+        ByteBuffer buf = row.get(column);
+        if (buf == null || buf.remaining() == 0) {
+            return defaultValue;
+        }
+        return (String)metadata.deserialize(column, buf);
     }
 
     public InetAddress getInet(String column) {
@@ -291,6 +301,46 @@ public class Row {
         return getValue(columnType, row.get(column), defaultValue);
     }
 
+    public <T> CollectionView.ListView<T> getListView(String column, Class<T> valueClass) {
+        return getListView(metadata.getColumnIndex(column), valueClass);
+    }
+
+    public <T> CollectionView.ListView<T> getListView(int column, Class<T> valueClass) {
+        CQL3Type columnType = metadata.validateColumnType(column, CQL3Type.Name.LIST);
+        CQL3Type elementType = columnType.typeArguments().get(0);
+        if (!valueClass.isAssignableFrom(elementType.name().javaType)) {
+            throw new CQL3TypeError(String.format("column type does not match: %s, List<%s> (expected: List<%s>)", metadata.getColumnName(column), valueClass.getName(), elementType.name().javaType.getName()));
+        }
+        return CollectionView.listView(elementType.<T>codec(), row.get(column));
+    }
+
+    public <T> CollectionView.SetView<T> getSetView(String column, Class<T> valueClass) {
+        return getSetView(metadata.getColumnIndex(column), valueClass);
+    }
+
+    public <T> CollectionView.SetView<T> getSetView(int column, Class<T> valueClass) {
+        CQL3Type columnType = metadata.validateColumnType(column, CQL3Type.Name.SET);
+        CQL3Type elementType = columnType.typeArguments().get(0);
+        if (!valueClass.isAssignableFrom(elementType.name().javaType)) {
+            throw new CQL3TypeError(String.format("column type does not match: %s, Set<%s> (expected: Set<%s>)", metadata.getColumnName(column), valueClass.getName(), elementType.name().javaType.getName()));
+        }
+        return CollectionView.setView(elementType.<T>codec(), row.get(column));
+    }
+
+    public <K, V> CollectionView.MapView<K, V> getMapView(String column, Class<K> keyClass, Class<V> valueClass) {
+        return getMapView(metadata.getColumnIndex(column), keyClass, valueClass);
+    }
+
+    public <K, V> CollectionView.MapView<K, V> getMapView(int column, Class<K> keyClass, Class<V> valueClass) {
+        CQL3Type columnType = metadata.validateColumnType(column, CQL3Type.Name.MAP);
+        CQL3Type keyType = columnType.typeArguments().get(0);
+        CQL3Type valueType = columnType.typeArguments().get(1);
+        if (!keyClass.isAssignableFrom(keyType.name().javaType) || !valueClass.isAssignableFrom(valueType.name().javaType)) {
+            throw new CQL3TypeError(String.format("column type does not match: %s, Map<%s, %s> (expected: Map<%s, %s>)", metadata.getColumnName(column), keyClass.getName(), valueClass.getName(), keyType.name().javaType.getName(), valueType.name().javaType.getName()));
+        }
+        return CollectionView.mapView(keyType.<K>codec(), valueType.<V>codec(), row.get(column));
+    }
+
     private <T> T getValue(int index, CQL3Type.Name name, T defaultValue) {
         return getValue(metadata.validateColumnType(index, name), row.get(index), defaultValue);
     }
@@ -299,10 +349,6 @@ public class Row {
         return getValue(metadata.validateColumnType(index, name1, name2), row.get(index), defaultValue);
     }
 
-    private <T> T getValue(int index, CQL3Type.Name name1, CQL3Type.Name name2, CQL3Type.Name name3, T defaultValue) {
-        return getValue(metadata.validateColumnType(index, name1, name2, name3), row.get(index), defaultValue);
-    }
-
     @SuppressWarnings("unchecked")
     private <T> T getValue(CQL3Type columnType, ByteBuffer buf, T defaultValue) {
         if (buf == null || buf.remaining() == 0) {
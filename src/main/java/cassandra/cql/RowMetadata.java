@@ -3,13 +3,16 @@ package cassandra.cql;
 import cassandra.cql.RowMetadata.Column;
 import cassandra.cql.type.CQL3Type;
 import cassandra.cql.type.CQL3TypeError;
+import cassandra.cql.type.StringCache;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 
 public class RowMetadata implements Iterable<Column> {
 
     private final Column[] columns;
     private final Map<String, int[]> namemap;
+    private volatile StringCache[] stringCaches;
 
     public RowMetadata(Column[] columns) {
         this.columns = columns;
@@ -57,6 +60,14 @@ public class RowMetadata implements Iterable<Column> {
         return getColumnType(getColumnIndex(column));
     }
 
+    public boolean hasColumn(String column) {
+        String name = column;
+        if (name.length() >= 2 && name.charAt(0) == '"' && name.charAt(name.length() - 1) == '"') {
+            name = name.substring(1, name.length() - 1);
+        }
+        return namemap.containsKey(name.toLowerCase());
+    }
+
     public int getColumnIndex(String column) {
         return getColumnIndexArray(column)[0];
     }
@@ -170,6 +181,41 @@ public class RowMetadata implements Iterable<Column> {
         return columnType;
     }
 
+    public StringCache getStringCache(int column) {
+        StringCache[] caches = stringCaches;
+        return caches == null ? null : caches[column];
+    }
+
+    public StringCache getStringCache(String column) {
+        return getStringCache(getColumnIndex(column));
+    }
+
+    public RowMetadata setStringCache(int column, StringCache cache) {
+        validateColumnType(column, CQL3Type.Name.VARCHAR, CQL3Type.Name.TEXT, CQL3Type.Name.ASCII);
+        synchronized (this) {
+            StringCache[] caches = stringCaches;
+            StringCache[] newCaches = caches == null ? new StringCache[columns.length] : caches.clone();
+            newCaches[column] = cache;
+            stringCaches = newCaches;
+        }
+        return this;
+    }
+
+    public RowMetadata setStringCache(String column, StringCache cache) {
+        for (int index : getColumnIndexArray(column)) {
+            setStringCache(index, cache);
+        }
+        return this;
+    }
+
+    public Object deserialize(int column, ByteBuffer value) {
+        StringCache cache = getStringCache(column);
+        if (cache != null) {
+            return cache.get(value, getColumnType(column).<String>codec());
+        }
+        return getColumnType(column).deserialize(value);
+    }
+
     public Column getColumn(int index) {
         return columns[index];
     }
@@ -0,0 +1,235 @@
+package cassandra.cql;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+public class SpillableRowList extends AbstractList<Row> implements RandomAccess, Closeable {
+
+    public static final long DEFAULT_HEAP_BUDGET = 64L * 1024 * 1024;
+
+    private static final int ROW_OVERHEAD = 32;
+    private static final int CELL_OVERHEAD = 16;
+    private static final int REGION_SIZE = 64 * 1024 * 1024;
+
+    private final RowMetadata metadata;
+    private final long heapBudget;
+    private final List<List<ByteBuffer>> heapRows;
+    private long heapSize;
+    private File file;
+    private FileChannel channel;
+    private ByteBuffer writeBuffer;
+    private long fileSize;
+    private long[] offsets;
+    private int spilledRows;
+    private final List<Region> regions;
+    private boolean closed;
+
+    public SpillableRowList(RowMetadata metadata, long heapBudget) {
+        if (heapBudget < 0) {
+            throw new IllegalArgumentException(String.format("heapBudget: %d (expected: >= 0)", heapBudget));
+        }
+        this.metadata = metadata;
+        this.heapBudget = heapBudget;
+        heapRows = new ArrayList<List<ByteBuffer>>();
+        regions = new ArrayList<Region>();
+    }
+
+    public RowMetadata getMetadata() {
+        return metadata;
+    }
+
+    public boolean isSpilled() {
+        return spilledRows > 0;
+    }
+
+    public int getSpilledCount() {
+        return spilledRows;
+    }
+
+    public long getSpilledBytes() {
+        return fileSize;
+    }
+
+    public synchronized SpillableRowList append(List<ByteBuffer> row) {
+        ensureOpen();
+        if (spilledRows == 0) {
+            long size = estimateSize(row);
+            if (heapSize + size <= heapBudget) {
+                heapRows.add(row);
+                heapSize += size;
+                return this;
+            }
+        }
+        spill(row);
+        return this;
+    }
+
+    @Override
+    public synchronized Row get(int index) {
+        ensureOpen();
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(String.format("index: %d (expected: 0 <= index < %d)", index, size()));
+        }
+        if (index < heapRows.size()) {
+            return new Row(metadata, heapRows.get(index));
+        }
+        return new Row(metadata, read(index - heapRows.size()));
+    }
+
+    @Override
+    public synchronized int size() {
+        return heapRows.size() + spilledRows;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        heapRows.clear();
+        regions.clear();
+        offsets = null;
+        writeBuffer = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            channel = null;
+        }
+        if (file != null) {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+            file = null;
+        }
+    }
+
+    private void spill(List<ByteBuffer> row) {
+        try {
+            if (channel == null) {
+                file = File.createTempFile("cassandra-rows-", ".spill");
+                channel = new RandomAccessFile(file, "rw").getChannel();
+                offsets = new long[1024];
+            }
+            int size = 4;
+            for (ByteBuffer cell : row) {
+                size += 4 + (cell == null ? 0 : cell.remaining());
+            }
+            Region region = regions.isEmpty() ? null : regions.get(regions.size() - 1);
+            if (region == null || (region.length > 0 && region.length + size > REGION_SIZE)) {
+                region = new Region(fileSize);
+                regions.add(region);
+            }
+            if (writeBuffer == null || writeBuffer.capacity() < size) {
+                writeBuffer = ByteBuffer.allocate(Math.max(size, 8192));
+            }
+            writeBuffer.clear();
+            writeBuffer.putInt(row.size());
+            for (ByteBuffer cell : row) {
+                if (cell == null) {
+                    writeBuffer.putInt(-1);
+                } else {
+                    writeBuffer.putInt(cell.remaining());
+                    writeBuffer.put(cell.duplicate());
+                }
+            }
+            writeBuffer.flip();
+            long position = fileSize;
+            while (writeBuffer.hasRemaining()) {
+                position += channel.write(writeBuffer, position);
+            }
+            if (spilledRows == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[spilledRows++] = fileSize;
+            fileSize += size;
+            region.length += size;
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot spill rows to disk", e);
+        }
+    }
+
+    private List<ByteBuffer> read(int index) {
+        long offset = offsets[index];
+        Region region = findRegion(offset);
+        ByteBuffer buffer = region.map(channel).duplicate();
+        buffer.position((int)(offset - region.start));
+        int columns = buffer.getInt();
+        List<ByteBuffer> row = new ArrayList<ByteBuffer>(columns);
+        for (int i = 0; i < columns; i++) {
+            int length = buffer.getInt();
+            if (length < 0) {
+                row.add(null);
+            } else {
+                ByteBuffer cell = buffer.slice();
+                cell.limit(length);
+                row.add(cell);
+                buffer.position(buffer.position() + length);
+            }
+        }
+        return row;
+    }
+
+    private Region findRegion(long offset) {
+        int low = 0;
+        int high = regions.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (regions.get(mid).start <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return regions.get(low);
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("closed");
+        }
+    }
+
+    private static long estimateSize(List<ByteBuffer> row) {
+        long size = ROW_OVERHEAD;
+        for (ByteBuffer cell : row) {
+            size += CELL_OVERHEAD + (cell == null ? 0 : cell.capacity());
+        }
+        return size;
+    }
+
+    private static class Region {
+
+        private final long start;
+        private int length;
+        private MappedByteBuffer mapped;
+
+        private Region(long start) {
+            this.start = start;
+        }
+
+        private ByteBuffer map(FileChannel channel) {
+            if (mapped == null || mapped.capacity() < length) {
+                try {
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                } catch (IOException e) {
+                    throw new IllegalStateException("cannot map spilled rows", e);
+                }
+            }
+            return mapped;
+        }
+    }
+}
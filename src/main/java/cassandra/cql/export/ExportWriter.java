@@ -0,0 +1,324 @@
+package cassandra.cql.export;
+
+import cassandra.cql.RowMetadata;
+import cassandra.cql.type.CQL3Type;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+class ExportWriter {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(CharsetUtil.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(CharsetUtil.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(CharsetUtil.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(CharsetUtil.US_ASCII);
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(CharsetUtil.US_ASCII);
+
+    private final Exporter.Format format;
+    private final int flushThreshold;
+    private final byte[] digits;
+    private byte[] buffer;
+    private int length;
+    private RowMetadata metadata;
+    private CQL3Type.Name[] names;
+    private CQL3Type[] types;
+    private byte[][] keys;
+
+    ExportWriter(Exporter.Format format, int flushThreshold) {
+        this.format = format;
+        this.flushThreshold = flushThreshold;
+        digits = new byte[20];
+        buffer = new byte[Math.max(flushThreshold, 1024) + 1024];
+    }
+
+    boolean shouldFlush() {
+        return length >= flushThreshold;
+    }
+
+    void flushTo(OutputStream out) throws IOException {
+        if (length > 0) {
+            out.write(buffer, 0, length);
+            length = 0;
+        }
+    }
+
+    void header(RowMetadata metadata) {
+        prepare(metadata);
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                write((byte)',');
+            }
+            byte[] name = metadata.getColumnName(i).getBytes(CharsetUtil.UTF_8);
+            writeText(ByteBuffer.wrap(name));
+        }
+        write((byte)'\n');
+    }
+
+    void row(RowMetadata metadata, List<ByteBuffer> row) {
+        prepare(metadata);
+        if (format == Exporter.Format.JSON) {
+            write((byte)'{');
+            for (int i = 0; i < names.length; i++) {
+                if (i > 0) {
+                    write((byte)',');
+                }
+                write(keys[i], 0, keys[i].length);
+                cell(i, row.get(i));
+            }
+            write((byte)'}');
+        } else {
+            for (int i = 0; i < names.length; i++) {
+                if (i > 0) {
+                    write((byte)',');
+                }
+                cell(i, row.get(i));
+            }
+        }
+        write((byte)'\n');
+    }
+
+    private void prepare(RowMetadata metadata) {
+        if (this.metadata == metadata) {
+            return;
+        }
+        int count = metadata.getColumnCount();
+        names = new CQL3Type.Name[count];
+        types = new CQL3Type[count];
+        keys = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            types[i] = metadata.getColumnType(i);
+            names[i] = types[i].name();
+            if (format == Exporter.Format.JSON) {
+                int mark = length;
+                writeText(ByteBuffer.wrap(metadata.getColumnName(i).getBytes(CharsetUtil.UTF_8)));
+                write((byte)':');
+                keys[i] = Arrays.copyOfRange(buffer, mark, length);
+                length = mark;
+            }
+        }
+        this.metadata = metadata;
+    }
+
+    private void cell(int column, ByteBuffer value) {
+        if (value == null) {
+            if (format == Exporter.Format.JSON) {
+                write(NULL, 0, NULL.length);
+            }
+            return;
+        }
+        if (value.remaining() == 0 && !isText(names[column]) && names[column] != CQL3Type.Name.BLOB) {
+            if (format == Exporter.Format.JSON) {
+                write(NULL, 0, NULL.length);
+            }
+            return;
+        }
+        int position = value.position();
+        switch (names[column]) {
+            case INT:
+                writeLong(value.getInt(position));
+                break;
+            case BIGINT:
+            case COUNTER:
+            case TIMESTAMP:
+                writeLong(value.getLong(position));
+                break;
+            case BOOLEAN:
+                byte[] bool = value.get(position) != 0 ? TRUE : FALSE;
+                write(bool, 0, bool.length);
+                break;
+            case FLOAT:
+                float f = value.getFloat(position);
+                writeNumber(Float.toString(f), !Float.isNaN(f) && !Float.isInfinite(f));
+                break;
+            case DOUBLE:
+                double d = value.getDouble(position);
+                writeNumber(Double.toString(d), !Double.isNaN(d) && !Double.isInfinite(d));
+                break;
+            case ASCII:
+            case TEXT:
+            case VARCHAR:
+                writeText(value);
+                break;
+            case UUID:
+            case TIMEUUID:
+                writeQuote();
+                writeUUID(value.getLong(position), value.getLong(position + 8));
+                writeQuote();
+                break;
+            case BLOB:
+            case CUSTOM:
+                writeQuote();
+                writeHex(value);
+                writeQuote();
+                break;
+            case DECIMAL:
+            case VARINT:
+                writeAscii(String.valueOf(types[column].deserialize(value)));
+                break;
+            default:
+                Object object = types[column].deserialize(value);
+                String string;
+                if (object instanceof InetAddress) {
+                    string = ((InetAddress)object).getHostAddress();
+                } else if (object instanceof Date) {
+                    string = Long.toString(((Date)object).getTime());
+                } else {
+                    string = String.valueOf(object);
+                }
+                writeText(ByteBuffer.wrap(string.getBytes(CharsetUtil.UTF_8)));
+                break;
+        }
+    }
+
+    private static boolean isText(CQL3Type.Name name) {
+        return name == CQL3Type.Name.ASCII || name == CQL3Type.Name.TEXT || name == CQL3Type.Name.VARCHAR;
+    }
+
+    private void writeQuote() {
+        if (format == Exporter.Format.JSON) {
+            write((byte)'"');
+        }
+    }
+
+    private void writeNumber(String value, boolean finite) {
+        if (!finite && format == Exporter.Format.JSON) {
+            write(NULL, 0, NULL.length);
+        } else {
+            writeAscii(value);
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            write(MIN_LONG, 0, MIN_LONG.length);
+            return;
+        }
+        if (value < 0) {
+            write((byte)'-');
+            value = -value;
+        }
+        int index = digits.length;
+        do {
+            digits[--index] = (byte)('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        write(digits, index, digits.length - index);
+    }
+
+    private void writeUUID(long msb, long lsb) {
+        writeHex(msb >>> 32, 8);
+        write((byte)'-');
+        writeHex(msb >>> 16, 4);
+        write((byte)'-');
+        writeHex(msb, 4);
+        write((byte)'-');
+        writeHex(lsb >>> 48, 4);
+        write((byte)'-');
+        writeHex(lsb, 12);
+    }
+
+    private void writeHex(long value, int count) {
+        ensureCapacity(count);
+        for (int i = count - 1; i >= 0; i--) {
+            buffer[length + i] = HEX[(int)(value & 0xF)];
+            value >>>= 4;
+        }
+        length += count;
+    }
+
+    private void writeHex(ByteBuffer value) {
+        int remaining = value.remaining();
+        ensureCapacity(2 + remaining * 2);
+        buffer[length++] = '0';
+        buffer[length++] = 'x';
+        int position = value.position();
+        for (int i = 0; i < remaining; i++) {
+            int b = value.get(position + i) & 0xFF;
+            buffer[length++] = HEX[b >>> 4];
+            buffer[length++] = HEX[b & 0xF];
+        }
+    }
+
+    private void writeAscii(String value) {
+        int count = value.length();
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            buffer[length++] = (byte)value.charAt(i);
+        }
+    }
+
+    private void writeText(ByteBuffer value) {
+        int remaining = value.remaining();
+        int position = value.position();
+        if (format == Exporter.Format.JSON) {
+            ensureCapacity(remaining + 2);
+            buffer[length++] = '"';
+            for (int i = 0; i < remaining; i++) {
+                byte b = value.get(position + i);
+                if (b == '"' || b == '\\') {
+                    write((byte)'\\');
+                    write(b);
+                } else if (b >= 0 && b < 0x20) {
+                    ensureCapacity(6);
+                    buffer[length++] = '\\';
+                    buffer[length++] = 'u';
+                    buffer[length++] = '0';
+                    buffer[length++] = '0';
+                    buffer[length++] = HEX[b >>> 4];
+                    buffer[length++] = HEX[b & 0xF];
+                } else {
+                    write(b);
+                }
+            }
+            write((byte)'"');
+        } else {
+            boolean quote = false;
+            for (int i = 0; i < remaining; i++) {
+                byte b = value.get(position + i);
+                if (b == ',' || b == '"' || b == '\n' || b == '\r') {
+                    quote = true;
+                    break;
+                }
+            }
+            if (!quote) {
+                ensureCapacity(remaining);
+                value.duplicate().get(buffer, length, remaining);
+                length += remaining;
+                return;
+            }
+            ensureCapacity(remaining + 2);
+            buffer[length++] = '"';
+            for (int i = 0; i < remaining; i++) {
+                byte b = value.get(position + i);
+                if (b == '"') {
+                    write((byte)'"');
+                }
+                write(b);
+            }
+            write((byte)'"');
+        }
+    }
+
+    private void write(byte b) {
+        ensureCapacity(1);
+        buffer[length++] = b;
+    }
+
+    private void write(byte[] bytes, int offset, int count) {
+        ensureCapacity(count);
+        System.arraycopy(bytes, offset, buffer, length, count);
+        length += count;
+    }
+
+    private void ensureCapacity(int count) {
+        if (length + count > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package cassandra.cql.export;
+
+import cassandra.CassandraSession;
+import cassandra.cql.AbstractStatement;
+import cassandra.cql.PagingState;
+import cassandra.cql.PreparedStatement;
+import cassandra.cql.RowMetadata;
+import cassandra.metadata.ColumnMetadata;
+import cassandra.metadata.Partitioner;
+import cassandra.metadata.TableMetadata;
+import cassandra.protocol.CassandraMessage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.zip.GZIPOutputStream;
+
+public class Exporter {
+
+    public static enum Format {
+        CSV, JSON
+    }
+
+    public static final int DEFAULT_FLUSH_THRESHOLD = 64 * 1024;
+
+    private final CassandraSession session;
+    private Format format;
+    private boolean header;
+    private boolean gzip;
+    private int splits;
+    private int parallelism;
+    private int pageSizeLimit;
+    private int flushThreshold;
+
+    public Exporter(CassandraSession session) {
+        if (session == null) {
+            throw new NullPointerException("session");
+        }
+        this.session = session;
+        format = Format.CSV;
+        header = true;
+        splits = 1;
+        parallelism = Runtime.getRuntime().availableProcessors();
+        pageSizeLimit = -1;
+        flushThreshold = DEFAULT_FLUSH_THRESHOLD;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public Exporter setFormat(Format format) {
+        if (format == null) {
+            throw new NullPointerException("format");
+        }
+        this.format = format;
+        return this;
+    }
+
+    public boolean isHeader() {
+        return header;
+    }
+
+    public Exporter setHeader(boolean header) {
+        this.header = header;
+        return this;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    public Exporter setGzip(boolean gzip) {
+        this.gzip = gzip;
+        return this;
+    }
+
+    public int getSplits() {
+        return splits;
+    }
+
+    public Exporter setSplits(int splits) {
+        if (splits <= 0) {
+            throw new IllegalArgumentException(String.format("splits: %d (expected: > 0)", splits));
+        }
+        this.splits = splits;
+        return this;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public Exporter setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException(String.format("parallelism: %d (expected: > 0)", parallelism));
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public int getPageSizeLimit() {
+        return pageSizeLimit;
+    }
+
+    public Exporter setPageSizeLimit(int pageSizeLimit) {
+        this.pageSizeLimit = pageSizeLimit;
+        return this;
+    }
+
+    public int getFlushThreshold() {
+        return flushThreshold;
+    }
+
+    public Exporter setFlushThreshold(int flushThreshold) {
+        if (flushThreshold <= 0) {
+            throw new IllegalArgumentException(String.format("flushThreshold: %d (expected: > 0)", flushThreshold));
+        }
+        this.flushThreshold = flushThreshold;
+        return this;
+    }
+
+    public long export(AbstractStatement<?> statement, WritableByteChannel channel) throws IOException {
+        if (channel == null) {
+            throw new NullPointerException("channel");
+        }
+        return export(statement, Channels.newOutputStream(channel));
+    }
+
+    public long export(AbstractStatement<?> statement, OutputStream out) throws IOException {
+        if (statement == null) {
+            throw new NullPointerException("statement");
+        }
+        if (out == null) {
+            throw new NullPointerException("out");
+        }
+        if (pageSizeLimit > 0) {
+            statement.setPageSizeLimit(pageSizeLimit);
+        }
+        return run(Collections.<AbstractStatement<?>>singletonList(statement), out);
+    }
+
+    public long exportTable(String keyspace, String table, WritableByteChannel channel) throws IOException {
+        if (channel == null) {
+            throw new NullPointerException("channel");
+        }
+        return exportTable(keyspace, table, Channels.newOutputStream(channel));
+    }
+
+    public long exportTable(String keyspace, String table, OutputStream out) throws IOException {
+        if (table == null) {
+            throw new NullPointerException("table");
+        }
+        if (out == null) {
+            throw new NullPointerException("out");
+        }
+        if (keyspace == null || keyspace.isEmpty()) {
+            if (session.isGlobal()) {
+                throw new IllegalArgumentException("empty keyspace");
+            }
+            keyspace = session.keyspace();
+        }
+        if (!session.metadata().hasTable(keyspace, table)) {
+            throw new IllegalStateException(String.format("no matching table found: keyspace %s, table %s", keyspace, table));
+        }
+        TableMetadata tableMetadata = session.metadata().getTable(keyspace, table);
+        String query = String.format("SELECT * FROM %s.%s", keyspace, table);
+        List<AbstractStatement<?>> statements = new ArrayList<AbstractStatement<?>>();
+        if (splits > 1 && session.metadata().getPartitioner() instanceof Partitioner.Murmur3Partitioner) {
+            StringBuilder token = new StringBuilder("token(");
+            List<ColumnMetadata> partitionKey = tableMetadata.getPartitionKey();
+            for (int i = 0; i < partitionKey.size(); i++) {
+                if (i > 0) {
+                    token.append(",");
+                }
+                token.append(partitionKey.get(i).getName());
+            }
+            token.append(")");
+            String rangeQuery = String.format("%s WHERE %s > ? AND %s <= ?", query, token, token);
+            long[] boundaries = splitTokenRange(splits);
+            for (int i = 0; i < splits; i++) {
+                statements.add(session.statement(rangeQuery, boundaries[i], boundaries[i + 1]));
+            }
+        } else {
+            statements.add(session.statement(query));
+        }
+        for (AbstractStatement<?> statement : statements) {
+            statement.setKeyspace(keyspace);
+            if (pageSizeLimit > 0) {
+                statement.setPageSizeLimit(pageSizeLimit);
+            }
+        }
+        return run(statements, out);
+    }
+
+    private long run(List<AbstractStatement<?>> statements, OutputStream out) throws IOException {
+        GzipOutputStream gzipOut = gzip ? new GzipOutputStream(out) : null;
+        try {
+            long count = run(statements, new Sink(gzipOut != null ? gzipOut : out, header && format == Format.CSV));
+            if (gzipOut != null) {
+                gzipOut.finish();
+            }
+            out.flush();
+            return count;
+        } finally {
+            if (gzipOut != null) {
+                gzipOut.end();
+            }
+        }
+    }
+
+    private long run(List<AbstractStatement<?>> statements, final Sink sink) throws IOException {
+        long count = 0;
+        int threads = Math.min(parallelism, statements.size());
+        if (threads <= 1) {
+            ExportWriter writer = new ExportWriter(format, flushThreshold);
+            for (AbstractStatement<?> statement : statements) {
+                count += export(statement, writer, sink);
+            }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<Long>> futures = new ArrayList<Future<Long>>(statements.size());
+                for (final AbstractStatement<?> statement : statements) {
+                    futures.add(executor.submit(new Callable<Long>() {
+                        @Override
+                        public Long call() throws Exception {
+                            return export(statement, new ExportWriter(format, flushThreshold), sink);
+                        }
+                    }));
+                }
+                for (Future<Long> future : futures) {
+                    count += get(future);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        return count;
+    }
+
+    private long export(AbstractStatement<?> statement, ExportWriter writer, Sink sink) throws IOException {
+        RowMetadata metadata = null;
+        PreparedStatement pstmt = PreparedStatement.definitionOf(statement);
+        if (pstmt != null) {
+            metadata = pstmt.getMetadata();
+        }
+        PagingState initialPagingState = statement.getPagingState();
+        ByteBuffer pagingState = initialPagingState != null ? initialPagingState.asByteBuffer() : null;
+        long count = 0;
+        do {
+            CassandraMessage.QueryParameters queryParameters = new CassandraMessage.QueryParameters(statement.getConsistency(),
+                    statement.getParameters(),
+                    metadata != null,
+                    statement.getPageSizeLimit(),
+                    pagingState,
+                    statement.getSerialConsistency());
+            CassandraMessage.Result result = session.executeAsync(statement, queryParameters).get();
+            if (result.kind != CassandraMessage.Result.Kind.ROWS) {
+                break;
+            }
+            CassandraMessage.Result.Rows rows = (CassandraMessage.Result.Rows)result;
+            if (metadata == null && rows.metadata.columns != null) {
+                metadata = new RowMetadata(rows.metadata.columns);
+            }
+            if (metadata == null) {
+                break;
+            }
+            sink.header(metadata);
+            Queue<List<ByteBuffer>> page = rows.rows;
+            List<ByteBuffer> row;
+            while ((row = page.poll()) != null) {
+                writer.row(metadata, row);
+                count++;
+                if (writer.shouldFlush()) {
+                    sink.write(writer);
+                }
+            }
+            pagingState = rows.metadata.pagingState;
+        } while (pagingState != null);
+        sink.write(writer);
+        return count;
+    }
+
+    private static long[] splitTokenRange(int splits) {
+        BigInteger min = BigInteger.valueOf(Long.MIN_VALUE);
+        BigInteger range = BigInteger.valueOf(Long.MAX_VALUE).subtract(min);
+        long[] boundaries = new long[splits + 1];
+        for (int i = 0; i < splits; i++) {
+            boundaries[i] = min.add(range.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(splits))).longValue();
+        }
+        boundaries[splits] = Long.MAX_VALUE;
+        return boundaries;
+    }
+
+    private static long get(Future<Long> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private class Sink {
+
+        private final OutputStream out;
+        private boolean header;
+
+        private Sink(OutputStream out, boolean header) {
+            this.out = out;
+            this.header = header;
+        }
+
+        private synchronized void header(RowMetadata metadata) throws IOException {
+            if (header) {
+                header = false;
+                ExportWriter writer = new ExportWriter(format, flushThreshold);
+                writer.header(metadata);
+                writer.flushTo(out);
+            }
+        }
+
+        private synchronized void write(ExportWriter writer) throws IOException {
+            writer.flushTo(out);
+        }
+    }
+
+    private static class GzipOutputStream extends GZIPOutputStream {
+
+        private GzipOutputStream(OutputStream out) throws IOException {
+            super(out, 8192);
+        }
+
+        private void end() {
+            def.end();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package cassandra.cql.mapper;
+
+import cassandra.cql.BoundStatement;
+import cassandra.cql.PreparedStatement;
+import cassandra.cql.ResultSet;
+import cassandra.cql.Row;
+import cassandra.cql.RowMetadata;
+import cassandra.cql.type.CQL3Type;
+import cassandra.cql.type.CQL3TypeError;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+
+import static io.netty.util.internal.PlatformDependent.newConcurrentHashMap;
+
+public class EntityMapper<T> {
+
+    private static final ConcurrentMap<Class<?>, EntityMapper<?>> mappers = newConcurrentHashMap();
+
+    @SuppressWarnings("unchecked")
+    public static <T> EntityMapper<T> of(Class<T> entityClass) {
+        if (entityClass == null) {
+            throw new NullPointerException("entityClass");
+        }
+        EntityMapper<T> mapper = (EntityMapper<T>)mappers.get(entityClass);
+        if (mapper == null) {
+            EntityMapper<T> newMapper = new EntityMapper<T>(entityClass);
+            mapper = (EntityMapper<T>)mappers.putIfAbsent(entityClass, newMapper);
+            if (mapper == null) {
+                mapper = newMapper;
+            }
+        }
+        return mapper;
+    }
+
+    private final Class<T> entityClass;
+    private final Constructor<T> constructor;
+    private final Property[] properties;
+    private final Map<RowMetadata, Plan> plans;
+    private volatile CachedPlan lastRowPlan, lastParameterPlan;
+
+    private EntityMapper(Class<T> entityClass) {
+        this.entityClass = entityClass;
+        try {
+            constructor = entityClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(String.format("no default constructor found: %s", entityClass.getName()));
+        }
+        List<Property> list = new ArrayList<Property>();
+        for (Class<?> c = entityClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || Modifier.isFinal(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                if (field.isAnnotationPresent(Transient.class)) {
+                    continue;
+                }
+                list.add(new Property(field));
+            }
+        }
+        if (list.isEmpty()) {
+            throw new IllegalArgumentException(String.format("no mapped fields found: %s", entityClass.getName()));
+        }
+        properties = list.toArray(new Property[list.size()]);
+        plans = Collections.synchronizedMap(new WeakHashMap<RowMetadata, Plan>());
+    }
+
+    public Class<T> entityClass() {
+        return entityClass;
+    }
+
+    public T map(Row row) {
+        if (row == null) {
+            throw new NullPointerException("row");
+        }
+        RowMetadata metadata = row.getMetadata();
+        Plan plan = rowPlan(metadata);
+        T entity = newInstance();
+        for (int i = 0; i < plan.columns.length; i++) {
+            ByteBuffer value = row.getRawValue(plan.columns[i]);
+            if (value == null || value.remaining() == 0) {
+                continue;
+            }
+            properties[plan.properties[i]].set(entity, metadata.deserialize(plan.columns[i], value));
+        }
+        return entity;
+    }
+
+    public List<T> mapAll(ResultSet resultSet) {
+        if (resultSet == null) {
+            throw new NullPointerException("resultSet");
+        }
+        List<T> list = new ArrayList<T>();
+        for (Row row : resultSet) {
+            list.add(map(row));
+        }
+        return list;
+    }
+
+    public PreparedStatement bind(PreparedStatement pstmt, T entity) {
+        if (pstmt == null) {
+            throw new NullPointerException("pstmt");
+        }
+        if (entity == null) {
+            throw new NullPointerException("entity");
+        }
+        Plan plan = parameterPlan(pstmt.getParameterMetadata());
+        for (int i = 0; i < plan.columns.length; i++) {
+            Object value = properties[plan.properties[i]].get(entity);
+            pstmt.setRawValue(plan.columns[i], value == null ? null : plan.types[i].serialize(value));
+        }
+        return pstmt;
+    }
+
+    public BoundStatement bind(BoundStatement bound, T entity) {
+        if (bound == null) {
+            throw new NullPointerException("bound");
+        }
+        if (entity == null) {
+            throw new NullPointerException("entity");
+        }
+        Plan plan = parameterPlan(bound.getParameterMetadata());
+        for (int i = 0; i < plan.columns.length; i++) {
+            Object value = properties[plan.properties[i]].get(entity);
+            bound.setRawValue(plan.columns[i], value == null ? null : plan.types[i].serialize(value));
+        }
+        return bound;
+    }
+
+    private Plan rowPlan(RowMetadata metadata) {
+        CachedPlan cached = lastRowPlan;
+        if (cached != null && cached.metadata == metadata) {
+            return cached.plan;
+        }
+        Plan plan = plan(metadata);
+        lastRowPlan = new CachedPlan(metadata, plan);
+        return plan;
+    }
+
+    private Plan parameterPlan(RowMetadata metadata) {
+        if (metadata == null) {
+            throw new IllegalArgumentException("no bind variables");
+        }
+        CachedPlan cached = lastParameterPlan;
+        if (cached != null && cached.metadata == metadata) {
+            return cached.plan;
+        }
+        Plan plan = plan(metadata);
+        lastParameterPlan = new CachedPlan(metadata, plan);
+        return plan;
+    }
+
+    private Plan plan(RowMetadata metadata) {
+        Plan plan = plans.get(metadata);
+        if (plan == null) {
+            plan = new Plan(properties, metadata);
+            plans.put(metadata, plan);
+        }
+        return plan;
+    }
+
+    private T newInstance() {
+        try {
+            return constructor.newInstance();
+        } catch (Exception e) {
+            throw new IllegalStateException(String.format("cannot instantiate %s", entityClass.getName()), e);
+        }
+    }
+
+    private static class Plan {
+
+        private final int[] properties;
+        private final int[] columns;
+        private final CQL3Type[] types;
+
+        private Plan(Property[] mapped, RowMetadata metadata) {
+            List<int[]> pairs = new ArrayList<int[]>();
+            for (int i = 0; i < mapped.length; i++) {
+                Property property = mapped[i];
+                if (!metadata.hasColumn(property.column)) {
+                    continue;
+                }
+                for (int index : metadata.getColumnIndexArray(property.column)) {
+                    CQL3Type columnType = metadata.getColumnType(index);
+                    if (!property.type.isAssignableFrom(columnType.name().javaType)) {
+                        throw new CQL3TypeError(String.format("column type does not match: %s, %s (expected: %s)", metadata.getColumnName(index), property.type.getName(), columnType.name().javaType.getName()));
+                    }
+                    pairs.add(new int[]{i, index});
+                }
+            }
+            properties = new int[pairs.size()];
+            columns = new int[pairs.size()];
+            types = new CQL3Type[pairs.size()];
+            for (int i = 0; i < pairs.size(); i++) {
+                int[] pair = pairs.get(i);
+                properties[i] = pair[0];
+                columns[i] = pair[1];
+                types[i] = metadata.getColumnType(pair[1]);
+            }
+        }
+    }
+
+    private static class CachedPlan {
+
+        private final RowMetadata metadata;
+        private final Plan plan;
+
+        private CachedPlan(RowMetadata metadata, Plan plan) {
+            this.metadata = metadata;
+            this.plan = plan;
+        }
+    }
+
+    private static class Property {
+
+        private final Field field;
+        private final String column;
+        private final Class<?> type;
+        private final boolean primitive;
+
+        private Property(Field field) {
+            field.setAccessible(true);
+            this.field = field;
+            Column annotation = field.getAnnotation(Column.class);
+            if (annotation != null && !annotation.value().isEmpty()) {
+                column = annotation.value();
+            } else {
+                column = field.getName();
+            }
+            primitive = field.getType().isPrimitive();
+            type = boxed(field.getType());
+        }
+
+        private Object get(Object entity) {
+            try {
+                return field.get(entity);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void set(Object entity, Object value) {
+            if (value == null && primitive) {
+                return;
+            }
+            try {
+                field.set(entity, value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static Class<?> boxed(Class<?> type) {
+            if (!type.isPrimitive()) {
+                return type;
+            }
+            if (type == boolean.class) {
+                return Boolean.class;
+            } else if (type == int.class) {
+                return Integer.class;
+            } else if (type == long.class) {
+                return Long.class;
+            } else if (type == float.class) {
+                return Float.class;
+            } else if (type == double.class) {
+                return Double.class;
+            }
+            throw new IllegalArgumentException(String.format("unsupported field type: %s", type.getName()));
+        }
+    }
+}
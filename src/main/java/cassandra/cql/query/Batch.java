@@ -10,6 +10,8 @@ public class Batch extends Query<Batch> {
     private Clause options;
     private boolean logged;
     private Boolean counterUpdate;
+    private int maxChunkStatements, maxChunkBytes;
+    private boolean splitLogged;
 
     Batch() {
         queries = new ArrayList<Query>();
@@ -37,6 +39,43 @@ public class Batch extends Query<Batch> {
         return this;
     }
 
+    public boolean isChunked() {
+        return maxChunkStatements > 0 || maxChunkBytes > 0;
+    }
+
+    public int maxChunkStatements() {
+        return maxChunkStatements;
+    }
+
+    public Batch maxChunkStatements(int maxChunkStatements) {
+        if (maxChunkStatements <= 0) {
+            throw new IllegalArgumentException(String.format("maxChunkStatements: %d (expected: > 0)", maxChunkStatements));
+        }
+        this.maxChunkStatements = maxChunkStatements;
+        return this;
+    }
+
+    public int maxChunkBytes() {
+        return maxChunkBytes;
+    }
+
+    public Batch maxChunkBytes(int maxChunkBytes) {
+        if (maxChunkBytes <= 0) {
+            throw new IllegalArgumentException(String.format("maxChunkBytes: %d (expected: > 0)", maxChunkBytes));
+        }
+        this.maxChunkBytes = maxChunkBytes;
+        return this;
+    }
+
+    public boolean isSplitLogged() {
+        return splitLogged;
+    }
+
+    public Batch splitLogged() {
+        splitLogged = true;
+        return this;
+    }
+
     public boolean isCounterUpdate() {
         if (counterUpdate == null) {
             return false;
@@ -6,24 +6,48 @@ import cassandra.metadata.TableMetadata;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public class QueryBuilder implements QueryVisitor {
 
+    public static Shape shapeOf(Query<?> query) {
+        if (query == null) {
+            throw new NullPointerException("query");
+        }
+        QueryBuilder builder = new QueryBuilder(null, new ArrayList<Object>());
+        builder.shape.add(query.isPrepared() ? Boolean.TRUE : Boolean.FALSE);
+        query.accept(builder);
+        return new Shape(builder.shape.toArray(), builder.parameters);
+    }
+
     private final List<ColumnMetadata> partitionKey;
     private final ByteBuffer[] routingKey;
+    private final int[] routingKeyIndexes;
     private final StringBuilder query;
+    private final List<Object> shape;
     private List<Object> parameters;
+    private Clause.In partitionKeyIn, replacedIn;
+    private int partitionKeyInIndex;
+    private Object[] replacementValues;
 
     public QueryBuilder(TableMetadata table) {
+        this(table, null);
+    }
+
+    private QueryBuilder(TableMetadata table, List<Object> shape) {
         if (table != null) {
             partitionKey = table.getPartitionKey();
             routingKey = new ByteBuffer[partitionKey.size()];
+            routingKeyIndexes = new int[partitionKey.size()];
         } else {
             partitionKey = null;
             routingKey = null;
+            routingKeyIndexes = null;
         }
-        query = new StringBuilder();
+        this.shape = shape;
+        query = shape == null ? new StringBuilder() : null;
     }
 
     public boolean hasRoutingKey() {
@@ -45,6 +69,45 @@ public class QueryBuilder implements QueryVisitor {
         return RoutingKey.copyFrom(routingKey);
     }
 
+    public int[] routingKeyIndexes() {
+        if (!hasRoutingKey()) {
+            return null;
+        }
+        return routingKeyIndexes.clone();
+    }
+
+    public QueryBuilder replace(Clause.In in, Object[] values) {
+        if (in == null) {
+            throw new NullPointerException("in");
+        }
+        if (values == null) {
+            throw new NullPointerException("values");
+        }
+        if (values.length == 0) {
+            throw new IllegalArgumentException("empty values");
+        }
+        replacedIn = in;
+        replacementValues = values;
+        return this;
+    }
+
+    public boolean hasPartitionKeyIn() {
+        return partitionKeyIn != null && hasRoutingKey();
+    }
+
+    public Clause.In partitionKeyIn() {
+        return partitionKeyIn;
+    }
+
+    public RoutingKey routingKey(Object partitionKeyInValue) {
+        if (!hasPartitionKeyIn() || partitionKeyInValue == null) {
+            return null;
+        }
+        ByteBuffer[] key = routingKey.clone();
+        key[partitionKeyInIndex] = partitionKey.get(partitionKeyInIndex).getCqlType().serialize(partitionKeyInValue);
+        return RoutingKey.copyFrom(key);
+    }
+
     public boolean hasParameters() {
         return parameters != null && !parameters.isEmpty();
     }
@@ -64,28 +127,28 @@ public class QueryBuilder implements QueryVisitor {
 
     @Override
     public void visit(Truncate node) {
-        query.append("TRUNCATE ");
+        append("TRUNCATE ");
         if (node.hasKeyspace()) {
-            query.append(node.keyspace).append(".");
+            append(node.keyspace).append(".");
         }
-        query.append(node.table);
+        append(node.table);
     }
 
     @Override
     public void visit(Select node) {
-        query.append("SELECT ");
+        append("SELECT ");
         if (node.hasSelectionClause()) {
             node.selectionClause().accept(this);
         } else {
-            query.append("*");
+            append("*");
         }
-        query.append(" FROM ");
+        append(" FROM ");
         if (node.hasKeyspace()) {
-            query.append(node.keyspace).append(".");
+            append(node.keyspace).append(".");
         }
-        query.append(node.table);
+        append(node.table);
         if (node.hasWhereClause()) {
-            query.append(" WHERE ");
+            append(" WHERE ");
             node.whereClause().accept(this);
         }
         if (node.hasSort()) {
@@ -95,86 +158,86 @@ public class QueryBuilder implements QueryVisitor {
             node.limit().accept(this);
         }
         if (node.isAllowFiltering()) {
-            query.append(" ALLOW FILTERING");
+            append(" ALLOW FILTERING");
         }
     }
 
     @Override
     public void visit(Insert node) {
-        query.append("INSERT INTO ");
+        append("INSERT INTO ");
         if (node.hasKeyspace()) {
-            query.append(node.keyspace).append(".");
+            append(node.keyspace).append(".");
         }
-        query.append(node.table);
-        query.append("(");
+        append(node.table);
+        append("(");
         boolean first = true;
         for (String name : node.names()) {
             if (first) {
                 first = false;
             } else {
-                query.append(",");
+                append(",");
             }
-            query.append(name);
+            append(name);
         }
-        query.append(") VALUES (");
+        append(") VALUES (");
         for (int i = 0; i < node.names().size(); i++) {
             if (i != 0) {
-                query.append(",");
+                append(",");
             }
             appendValue(node.names().get(i), node.values().get(i));
         }
-        query.append(")");
+        append(")");
         if (node.isIfNotExists()) {
-            query.append(" IF NOT EXISTS");
+            append(" IF NOT EXISTS");
         }
         if (node.hasOptions()) {
-            query.append(" USING ");
+            append(" USING ");
             node.options().accept(this);
         }
     }
 
     @Override
     public void visit(Update node) {
-        query.append("UPDATE ");
+        append("UPDATE ");
         if (node.hasKeyspace()) {
-            query.append(node.keyspace).append(".");
+            append(node.keyspace).append(".");
         }
-        query.append(node.table);
+        append(node.table);
         if (node.hasOptions()) {
-            query.append(" USING ");
+            append(" USING ");
             node.options().accept(this);
         }
-        query.append(" SET ");
+        append(" SET ");
         node.assignment().accept(this);
         if (node.hasWhereClause()) {
-            query.append(" WHERE ");
+            append(" WHERE ");
             node.whereClause().accept(this);
         }
         if (node.hasConditions()) {
-            query.append(" IF ");
+            append(" IF ");
             node.conditions().accept(this);
         }
     }
 
     @Override
     public void visit(Delete node) {
-        query.append("DELETE ");
+        append("DELETE ");
         if (node.hasSelectionClause()) {
             node.selectionClause().accept(this);
         } else {
-            query.append("*");
+            append("*");
         }
-        query.append(" FROM ");
+        append(" FROM ");
         if (node.hasKeyspace()) {
-            query.append(node.keyspace).append(".");
+            append(node.keyspace).append(".");
         }
-        query.append(node.table);
+        append(node.table);
         if (node.hasOptions()) {
-            query.append(" USING ");
+            append(" USING ");
             node.options().accept(this);
         }
         if (node.hasWhereClause()) {
-            query.append(" WHERE ");
+            append(" WHERE ");
             node.whereClause().accept(this);
         }
     }
@@ -182,24 +245,24 @@ public class QueryBuilder implements QueryVisitor {
     @Override
     public void visit(Batch node) {
         if (node.isCounterUpdate()) {
-            query.append("BEGIN COUNTER BATCH");
+            append("BEGIN COUNTER BATCH");
         } else {
             if (node.isLogged()) {
-                query.append("BEGIN BATCH");
+                append("BEGIN BATCH");
             } else {
-                query.append("BEGIN UNLOGGED BATCH");
+                append("BEGIN UNLOGGED BATCH");
             }
         }
         if (node.hasOptions()) {
-            query.append(" USING ");
+            append(" USING ");
             node.options().accept(this);
         }
-        query.append(" ");
+        append(" ");
         for (Query each : node.queries()) {
             each.accept(this);
-            query.append(";");
+            append(";");
         }
-        query.append("APPLY BATCH;");
+        append("APPLY BATCH;");
     }
 
     @Override
@@ -209,7 +272,7 @@ public class QueryBuilder implements QueryVisitor {
             if (first) {
                 first = false;
             } else {
-                query.append(" AND ");
+                append(" AND ");
             }
             each.accept(this);
         }
@@ -218,74 +281,83 @@ public class QueryBuilder implements QueryVisitor {
     @Override
     public void visit(Clause.Selection node) {
         if (node.isDistinct()) {
-            query.append(" DISTINCT ");
+            append(" DISTINCT ");
         }
         boolean first = true;
         for (Clause.Selection.Selector selector : node.selectors()) {
             if (first) {
                 first = false;
             } else {
-                query.append(",");
+                append(",");
             }
-            query.append(selector.name());
+            append(selector.name());
             if (selector.hasValue()) {
-                query.append("[");
+                append("[");
                 appendValue(selector.value());
-                query.append("]");
+                append("]");
             }
         }
     }
 
     @Override
     public void visit(Clause.Using node) {
-        query.append(node.name()).append(" ?");
+        append(node.name()).append(" ?");
         addParameter(node.value());
     }
 
     @Override
     public void visit(Clause.Equal node) {
-        query.append(node.name()).append("=");
+        append(node.name()).append("=");
         appendValue(node.name(), node.value());
     }
 
     @Override
     public void visit(Clause.LessThan node) {
-        query.append(node.name()).append("<");
+        append(node.name()).append("<");
         appendValue(node.name(), node.value());
     }
 
     @Override
     public void visit(Clause.LessThanEquals node) {
-        query.append(node.name()).append("<=");
+        append(node.name()).append("<=");
         appendValue(node.name(), node.value());
     }
 
     @Override
     public void visit(Clause.GreaterThan node) {
-        query.append(node.name()).append(">");
+        append(node.name()).append(">");
         appendValue(node.name(), node.value());
     }
 
     @Override
     public void visit(Clause.GreaterThanEquals node) {
-        query.append(node.name()).append(">=");
+        append(node.name()).append(">=");
         appendValue(node.name(), node.value());
     }
 
     @Override
     public void visit(Clause.In node) {
-        query.append(node.name()).append(" IN (");
+        Object[] values = node == replacedIn ? replacementValues : node.value();
+        if (partitionKey != null && partitionKeyIn == null) {
+            for (int i = 0; i < partitionKey.size(); i++) {
+                if (partitionKey.get(i).getName().equals(node.name())) {
+                    partitionKeyIn = node;
+                    partitionKeyInIndex = i;
+                }
+            }
+        }
+        append(node.name()).append(" IN (");
         boolean first = true;
-        for (Object each : node.value()) {
+        for (Object each : values) {
             if (first) {
                 first = false;
                 appendValue(node.name(), each);
             } else {
-                query.append(",");
+                append(",");
                 appendValue(each);
             }
         }
-        query.append(")");
+        append(")");
     }
 
     @Override
@@ -295,7 +367,7 @@ public class QueryBuilder implements QueryVisitor {
             if (first) {
                 first = false;
             } else {
-                query.append(",");
+                append(",");
             }
             each.accept(this);
         }
@@ -303,71 +375,71 @@ public class QueryBuilder implements QueryVisitor {
 
     @Override
     public void visit(Assignment.Increment node) {
-        query.append(node.name()).append("=+?"); // TODO with func
+        append(node.name()).append("=+?"); // TODO with func
         addParameter(node.value());
     }
 
     @Override
     public void visit(Assignment.Decrement node) {
-        query.append(node.name()).append("=-?"); // TODO with func
+        append(node.name()).append("=-?"); // TODO with func
         addParameter(node.value());
     }
 
     @Override
     public void visit(Assignment.Set node) {
-        query.append(node.name()).append("=");
+        append(node.name()).append("=");
         appendValue(node.value());
     }
 
     @Override
     public void visit(Assignment.CollectionAdd node) {
-        query.append(node.name()).append("=");
+        append(node.name()).append("=");
         if (node.isPrepend()) {
-            query.append("?+").append(node.name());
+            append("?+").append(node.name());
         } else {
-            query.append(node.name()).append("+?");
+            append(node.name()).append("+?");
         }
         addParameter(node.value());
     }
 
     @Override
     public void visit(Assignment.CollectionRemove node) {
-        query.append(node.name()).append("=");
-        query.append(node.name()).append("-?");
+        append(node.name()).append("=");
+        append(node.name()).append("-?");
         addParameter(node.value());
     }
 
     @Override
     public void visit(Assignment.ListSet node) {
-        query.append(node.name()).append("[?]=");
+        append(node.name()).append("[?]=");
         addParameter(node.index());
         appendValue(node.value());
     }
 
     @Override
     public void visit(Assignment.MapPut node) {
-        query.append(node.name());
-        query.append("[?]=");
+        append(node.name());
+        append("[?]=");
         addParameter(node.key());
         appendValue(node.value());
     }
 
     @Override
     public void visit(Assignment.MapPutAll node) {
-        query.append(node.name()).append("=");
-        query.append(node.name()).append("+");
+        append(node.name()).append("=");
+        append(node.name()).append("+");
         appendValue(node.value());
     }
 
     @Override
     public void visit(Sort node) {
-        query.append(" ORDER BY ");
+        append(" ORDER BY ");
         boolean first = true;
         for (Order each : node.orders()) {
             if (first) {
                 first = false;
             } else {
-                query.append(",");
+                append(",");
             }
             each.accept(this);
         }
@@ -375,20 +447,29 @@ public class QueryBuilder implements QueryVisitor {
 
     @Override
     public void visit(Order.Ascending node) {
-        query.append(node.name());
+        append(node.name());
     }
 
     @Override
     public void visit(Order.Descending node) {
-        query.append(node.name()).append(" DESC");
+        append(node.name()).append(" DESC");
     }
 
     @Override
     public void visit(Limit node) {
-        query.append(" LIMIT ?");
+        append(" LIMIT ?");
         addParameter(node.count());
     }
 
+    private QueryBuilder append(String value) {
+        if (shape != null) {
+            shape.add(value);
+        } else {
+            query.append(value);
+        }
+        return this;
+    }
+
     private QueryBuilder appendValue(Object value) {
         return appendValue(null, value);
     }
@@ -396,22 +477,22 @@ public class QueryBuilder implements QueryVisitor {
     private QueryBuilder appendValue(String name, Object value) {
         if (value instanceof Function) {
             Function function = (Function)value;
-            query.append(function.name()).append("(");
+            append(function.name()).append("(");
             if (function.hasParameters()) {
                 boolean first = true;
                 for (Object each : function.parameters()) {
                     if (first) {
                         first = false;
                     } else {
-                        query.append(",");
+                        append(",");
                     }
-                    query.append("?");
+                    append("?");
                     addParameter(each);
                 }
             }
-            query.append(")");
+            append(")");
         } else {
-            query.append("?");
+            append("?");
             addParameter(name, value);
         }
         return this;
@@ -431,9 +512,48 @@ public class QueryBuilder implements QueryVisitor {
                 ColumnMetadata column = partitionKey.get(i);
                 if (name.equals(column.getName())) {
                     routingKey[i] = column.getCqlType().serialize(value);
+                    routingKeyIndexes[i] = parameters.size() - 1;
                 }
             }
         }
         return this;
     }
+
+    public static class Shape {
+
+        private final Object[] tokens;
+        private final int hash;
+        private final List<Object> parameters;
+
+        private Shape(Object[] tokens, List<Object> parameters) {
+            this.tokens = tokens;
+            hash = Arrays.hashCode(tokens);
+            this.parameters = parameters;
+        }
+
+        public List<Object> parameters() {
+            return parameters != null ? parameters : Collections.emptyList();
+        }
+
+        public Shape key() {
+            return parameters == null ? this : new Shape(tokens, null);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Shape)) {
+                return false;
+            }
+            Shape shape = (Shape)o;
+            return hash == shape.hash && Arrays.equals(tokens, shape.tokens);
+        }
+    }
 }
@@ -301,7 +301,7 @@ public class CQL3Type { // TODO refactor this
     }
 
     @SuppressWarnings("unchecked")
-    private <T> TypeCodec<T> codec() {
+    public <T> TypeCodec<T> codec() {
         return (TypeCodec<T>)codec;
     }
 
@@ -568,14 +568,14 @@ public class CQL3Type { // TODO refactor this
             int elements = getUnsignedShort(dup);
             List<T> list = new ArrayList<T>(elements);
             for (int i = 0; i < elements; i++) {
-                int datalen = getUnsignedShort(dup);
-                byte[] data = new byte[datalen];
-                dup.get(data);
-                ByteBuffer databuffer = ByteBuffer.wrap(data);
-                list.add(elementCodec.decode(databuffer));
+                list.add(elementCodec.decode(getElement(dup)));
             }
             return list;
         }
+
+        public CollectionView.ListView<T> view(ByteBuffer buffer) {
+            return CollectionView.listView(elementCodec, buffer);
+        }
     }
 
     public static class SetCodec<T> implements TypeCodec<Set<T>> {
@@ -609,14 +609,14 @@ public class CQL3Type { // TODO refactor this
             int elements = getUnsignedShort(dup);
             Set<T> set = new LinkedHashSet<T>(elements);
             for (int i = 0; i < elements; i++) {
-                int datalen = getUnsignedShort(dup);
-                byte[] data = new byte[datalen];
-                dup.get(data);
-                ByteBuffer databuffer = ByteBuffer.wrap(data);
-                set.add(elementCodec.decode(databuffer));
+                set.add(elementCodec.decode(getElement(dup)));
             }
             return set;
         }
+
+        public CollectionView.SetView<T> view(ByteBuffer buffer) {
+            return CollectionView.setView(elementCodec, buffer);
+        }
     }
 
     public static class MapCodec<K, V> implements TypeCodec<Map<K, V>> {
@@ -649,20 +649,16 @@ public class CQL3Type { // TODO refactor this
             int size = getUnsignedShort(dup);
             Map<K, V> map = new LinkedHashMap<K, V>(size);
             for (int i = 0; i < size; i++) {
-                int keylen = getUnsignedShort(dup);
-                byte[] key = new byte[keylen];
-                dup.get(key);
-                ByteBuffer keybuf = ByteBuffer.wrap(key);
-
-                int vallen = getUnsignedShort(dup);
-                byte[] val = new byte[vallen];
-                dup.get(val);
-                ByteBuffer valbuf = ByteBuffer.wrap(val);
-
+                ByteBuffer keybuf = getElement(dup);
+                ByteBuffer valbuf = getElement(dup);
                 map.put(keyCodec.decode(keybuf), valueCodec.decode(valbuf));
             }
             return map;
         }
+
+        public CollectionView.MapView<K, V> view(ByteBuffer buffer) {
+            return CollectionView.mapView(keyCodec, valueCodec, buffer);
+        }
     }
 
     private static byte[] getArray(ByteBuffer buffer) {
@@ -690,6 +686,14 @@ public class CQL3Type { // TODO refactor this
         return (ByteBuffer)result.flip();
     }
 
+    private static ByteBuffer getElement(ByteBuffer buffer) {
+        int length = getUnsignedShort(buffer);
+        ByteBuffer element = buffer.slice();
+        element.limit(length);
+        buffer.position(buffer.position() + length);
+        return element;
+    }
+
     private static int getUnsignedShort(ByteBuffer buffer) {
         int length = (buffer.get() & 0xFF) << 8;
         return length | (buffer.get() & 0xFF);
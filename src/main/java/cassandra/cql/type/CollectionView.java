@@ -0,0 +1,279 @@
+package cassandra.cql.type;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+public abstract class CollectionView {
+
+    private static final ByteBuffer EMPTY_COLLECTION = ByteBuffer.wrap(new byte[]{0, 0}).asReadOnlyBuffer();
+
+    public static <T> ListView<T> listView(CQL3Type.TypeCodec<T> elementCodec, ByteBuffer buffer) {
+        return new ListView<T>(elementCodec, buffer == null || buffer.remaining() == 0 ? EMPTY_COLLECTION : buffer);
+    }
+
+    public static <T> SetView<T> setView(CQL3Type.TypeCodec<T> elementCodec, ByteBuffer buffer) {
+        return new SetView<T>(elementCodec, buffer == null || buffer.remaining() == 0 ? EMPTY_COLLECTION : buffer);
+    }
+
+    public static <K, V> MapView<K, V> mapView(CQL3Type.TypeCodec<K> keyCodec, CQL3Type.TypeCodec<V> valueCodec, ByteBuffer buffer) {
+        return new MapView<K, V>(keyCodec, valueCodec, buffer == null || buffer.remaining() == 0 ? EMPTY_COLLECTION : buffer);
+    }
+
+    private static class Elements {
+
+        private final ByteBuffer buffer;
+        private final int count;
+        private int[] offsets;
+
+        private Elements(ByteBuffer buffer, int count) {
+            this.buffer = buffer;
+            this.count = count;
+        }
+
+        private int offset(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException(String.format("index: %d (expected: 0 <= index < %d)", index, count));
+            }
+            int[] offsets = this.offsets;
+            if (offsets == null) {
+                offsets = new int[count];
+                int position = buffer.position() + 2;
+                for (int i = 0; i < count; i++) {
+                    offsets[i] = position + 2;
+                    position += 2 + length(position);
+                }
+                this.offsets = offsets;
+            }
+            return offsets[index];
+        }
+
+        private int length(int position) {
+            return ((buffer.get(position) & 0xFF) << 8) | (buffer.get(position + 1) & 0xFF);
+        }
+
+        private int lengthAt(int index) {
+            return length(offset(index) - 2);
+        }
+
+        private ByteBuffer slice(int index) {
+            int offset = offset(index);
+            ByteBuffer dup = buffer.duplicate();
+            dup.limit(offset + length(offset - 2)).position(offset);
+            return dup.slice();
+        }
+
+        private boolean equalsAt(int index, ByteBuffer value) {
+            int offset = offset(index);
+            int length = length(offset - 2);
+            if (length != value.remaining()) {
+                return false;
+            }
+            int start = value.position();
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(offset + i) != value.get(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int indexOf(ByteBuffer value, int step) {
+            for (int i = 0; i < count; i += step) {
+                if (equalsAt(i, value)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static int count(ByteBuffer buffer) {
+        return ((buffer.get(buffer.position()) & 0xFF) << 8) | (buffer.get(buffer.position() + 1) & 0xFF);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ByteBuffer encode(CQL3Type.TypeCodec<T> codec, Object value) {
+        try {
+            return codec.encode((T)value);
+        } catch (ClassCastException e) {
+            return null;
+        }
+    }
+
+    public static class ListView<T> extends AbstractList<T> implements RandomAccess {
+
+        private final CQL3Type.TypeCodec<T> elementCodec;
+        private final Elements elements;
+
+        ListView(CQL3Type.TypeCodec<T> elementCodec, ByteBuffer buffer) {
+            this.elementCodec = elementCodec;
+            elements = new Elements(buffer, count(buffer));
+        }
+
+        @Override
+        public int size() {
+            return elements.count;
+        }
+
+        @Override
+        public T get(int index) {
+            return elementCodec.decode(elements.slice(index));
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            if (o == null) {
+                return -1;
+            }
+            ByteBuffer value = encode(elementCodec, o);
+            return value == null ? -1 : elements.indexOf(value, 1);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        public ByteBuffer getBytes(int index) {
+            return elements.slice(index);
+        }
+
+        public int getInt(int index) {
+            return elements.buffer.getInt(elements.offset(index));
+        }
+
+        public long getLong(int index) {
+            return elements.buffer.getLong(elements.offset(index));
+        }
+
+        public float getFloat(int index) {
+            return elements.buffer.getFloat(elements.offset(index));
+        }
+
+        public double getDouble(int index) {
+            return elements.buffer.getDouble(elements.offset(index));
+        }
+
+        public boolean getBool(int index) {
+            return elements.lengthAt(index) > 0 && elements.buffer.get(elements.offset(index)) != 0;
+        }
+    }
+
+    public static class SetView<T> extends AbstractSet<T> {
+
+        private final ListView<T> list;
+
+        SetView(CQL3Type.TypeCodec<T> elementCodec, ByteBuffer buffer) {
+            list = new ListView<T>(elementCodec, buffer);
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return list.contains(o);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return list.iterator();
+        }
+
+        public ListView<T> asList() {
+            return list;
+        }
+    }
+
+    public static class MapView<K, V> extends AbstractMap<K, V> {
+
+        private final CQL3Type.TypeCodec<K> keyCodec;
+        private final CQL3Type.TypeCodec<V> valueCodec;
+        private final Elements elements;
+        private Set<Map.Entry<K, V>> entrySet;
+
+        MapView(CQL3Type.TypeCodec<K> keyCodec, CQL3Type.TypeCodec<V> valueCodec, ByteBuffer buffer) {
+            this.keyCodec = keyCodec;
+            this.valueCodec = valueCodec;
+            elements = new Elements(buffer, count(buffer) * 2);
+        }
+
+        @Override
+        public int size() {
+            return elements.count / 2;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOfKey(key) >= 0;
+        }
+
+        @Override
+        public V get(Object key) {
+            int index = indexOfKey(key);
+            if (index < 0) {
+                return null;
+            }
+            return valueCodec.decode(elements.slice(index + 1));
+        }
+
+        public K keyAt(int index) {
+            return keyCodec.decode(elements.slice(2 * index));
+        }
+
+        public V valueAt(int index) {
+            return valueCodec.decode(elements.slice(2 * index + 1));
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new AbstractSet<Map.Entry<K, V>>() {
+                    @Override
+                    public int size() {
+                        return MapView.this.size();
+                    }
+
+                    @Override
+                    public Iterator<Map.Entry<K, V>> iterator() {
+                        return new Iterator<Map.Entry<K, V>>() {
+
+                            private int index;
+
+                            @Override
+                            public boolean hasNext() {
+                                return index < MapView.this.size();
+                            }
+
+                            @Override
+                            public Map.Entry<K, V> next() {
+                                if (!hasNext()) {
+                                    throw new NoSuchElementException();
+                                }
+                                Map.Entry<K, V> entry = new AbstractMap.SimpleImmutableEntry<K, V>(keyAt(index), valueAt(index));
+                                index++;
+                                return entry;
+                            }
+
+                            @Override
+                            public void remove() {
+                                throw new UnsupportedOperationException();
+                            }
+                        };
+                    }
+                };
+            }
+            return entrySet;
+        }
+
+        private int indexOfKey(Object key) {
+            if (key == null) {
+                return -1;
+            }
+            ByteBuffer value = encode(keyCodec, key);
+            return value == null ? -1 : elements.indexOf(value, 2);
+        }
+    }
+}
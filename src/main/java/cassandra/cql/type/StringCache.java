@@ -0,0 +1,126 @@
+package cassandra.cql.type;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StringCache {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_LENGTH = 64;
+
+    private final Entry[] entries;
+    private final int mask;
+    private final int maxLength;
+    private final AtomicLong hits, misses;
+
+    public StringCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public StringCache(int capacity) {
+        this(capacity, DEFAULT_MAX_LENGTH);
+    }
+
+    public StringCache(int capacity, int maxLength) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(String.format("capacity: %d (expected: > 0)", capacity));
+        }
+        if (maxLength <= 0) {
+            throw new IllegalArgumentException(String.format("maxLength: %d (expected: > 0)", maxLength));
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        entries = new Entry[size];
+        mask = size - 1;
+        this.maxLength = maxLength;
+        hits = new AtomicLong();
+        misses = new AtomicLong();
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    public int maxLength() {
+        return maxLength;
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public double hitRate() {
+        long hits = hitCount();
+        long total = hits + missCount();
+        return total == 0 ? 0.0D : (double)hits / total;
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = null;
+        }
+        hits.set(0);
+        misses.set(0);
+    }
+
+    public String get(ByteBuffer buffer, CQL3Type.TypeCodec<String> codec) {
+        int length = buffer.remaining();
+        if (length > maxLength) {
+            return codec.decode(buffer);
+        }
+        int position = buffer.position();
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ buffer.get(position + i)) * 0x01000193;
+        }
+        int index = (hash ^ (hash >>> 16)) & mask;
+        Entry entry = entries[index];
+        if (entry != null && entry.hash == hash && entry.matches(buffer)) {
+            hits.incrementAndGet();
+            return entry.value;
+        }
+        misses.incrementAndGet();
+        byte[] bytes = new byte[length];
+        buffer.duplicate().get(bytes);
+        String value = codec.decode(ByteBuffer.wrap(bytes));
+        entries[index] = new Entry(hash, bytes, value);
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StringCache(capacity=%d, hits=%d, misses=%d)", capacity(), hitCount(), missCount());
+    }
+
+    private static class Entry {
+
+        private final int hash;
+        private final byte[] bytes;
+        private final String value;
+
+        private Entry(int hash, byte[] bytes, String value) {
+            this.hash = hash;
+            this.bytes = bytes;
+            this.value = value;
+        }
+
+        private boolean matches(ByteBuffer buffer) {
+            if (bytes.length != buffer.remaining()) {
+                return false;
+            }
+            int position = buffer.position();
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] != buffer.get(position + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -1,19 +1,27 @@
 package cassandra.metadata;
 
+import cassandra.routing.RoutingPolicy;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.PlatformDependent;
 
 import java.net.InetAddress;
 import java.util.*;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static io.netty.util.internal.PlatformDependent.newConcurrentHashMap;
 
 public abstract class Metadata extends MetadataEntity {
 
     private static final ColumnComparator COLUMN_COMPARATOR = new ColumnComparator();
+    private static final Executor REPLICA_MAP_EXECUTOR = Executors.newSingleThreadExecutor(new DefaultThreadFactory("cassandra-replica-map", true));
     private static final Iterator<Map.Entry<Partitioner.Token, InetAddress>> EMPTY_RING_ITERATOR = Collections.<Map.Entry<Partitioner.Token, InetAddress>>emptyList().iterator();
 
     private InetAddress local;
@@ -26,6 +34,13 @@ public abstract class Metadata extends MetadataEntity {
     private final ConcurrentMap<String, CopyOnWriteArrayList<InetAddress>> dc2Endpoints;
     private final ConcurrentMap<String, ConcurrentMap<String, CopyOnWriteArrayList<InetAddress>>> rack2Endpoints;
     private final ConcurrentSkipListMap<Partitioner.Token, InetAddress> tokenring;
+    private final Map<InetAddress, long[]> peerTokens;
+    private volatile TokenRing ring;
+    private volatile boolean ringChanged;
+    private final ConcurrentMap<String, ReplicaMap> replicaMaps;
+    private final Set<String> replicaMapKeyspaces;
+    private final AtomicLong topologyVersion;
+    private final AtomicBoolean rebuildScheduled;
 
     protected Metadata() {
         peers = newConcurrentHashMap();
@@ -35,6 +50,12 @@ public abstract class Metadata extends MetadataEntity {
         dc2Endpoints = newConcurrentHashMap();
         rack2Endpoints = newConcurrentHashMap();
         tokenring = new ConcurrentSkipListMap<Partitioner.Token, InetAddress>();
+        peerTokens = new LinkedHashMap<InetAddress, long[]>();
+        ring = TokenRing.EMPTY;
+        replicaMaps = newConcurrentHashMap();
+        replicaMapKeyspaces = Collections.newSetFromMap(PlatformDependent.<String, Boolean>newConcurrentHashMap());
+        topologyVersion = new AtomicLong();
+        rebuildScheduled = new AtomicBoolean();
     }
 
     @JsonIgnore
@@ -124,6 +145,9 @@ public abstract class Metadata extends MetadataEntity {
 
     @JsonIgnore
     public Iterator<Map.Entry<Partitioner.Token, InetAddress>> getRingIterator(Partitioner.Token start) {
+        if (start instanceof Partitioner.Murmur3Partitioner.LongToken && tokenring.isEmpty()) {
+            return getTokenRing().iterator(((Partitioner.Murmur3Partitioner.LongToken)start).value);
+        }
         if (tokenring.isEmpty()) {
             return EMPTY_RING_ITERATOR;
         }
@@ -131,12 +155,175 @@ public abstract class Metadata extends MetadataEntity {
         if (startToken == null) {
             startToken = tokenring.firstKey();
         }
-        return tokenring.tailMap(startToken).entrySet().iterator();
+        final Iterator<Map.Entry<Partitioner.Token, InetAddress>> tail = tokenring.tailMap(startToken).entrySet().iterator();
+        final Iterator<Map.Entry<Partitioner.Token, InetAddress>> head = tokenring.headMap(startToken).entrySet().iterator();
+        return new Iterator<Map.Entry<Partitioner.Token, InetAddress>>() {
+
+            @Override
+            public boolean hasNext() {
+                return tail.hasNext() || head.hasNext();
+            }
+
+            @Override
+            public Map.Entry<Partitioner.Token, InetAddress> next() {
+                return tail.hasNext() ? tail.next() : head.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @JsonIgnore
+    public TokenRing getTokenRing() {
+        if (ringChanged) {
+            synchronized (peerTokens) {
+                if (ringChanged) {
+                    ringChanged = false;
+                    ring = TokenRing.build(peerTokens);
+                }
+            }
+        }
+        return ring;
+    }
+
+    @JsonIgnore
+    public long getTopologyVersion() {
+        return topologyVersion.get();
+    }
+
+    @JsonIgnore
+    public List<InetAddress> getReplicas(String keyspace, Partitioner.Token token) {
+        ReplicaMap replicaMap = getReplicaMap(keyspace);
+        if (replicaMap != null) {
+            return replicaMap.getReplicas(token);
+        }
+        KeyspaceMetadata keyspaceMetadata = getKeyspace(keyspace);
+        if (keyspaceMetadata == null || keyspaceMetadata.getReplicationStrategy() == null) {
+            return Collections.emptyList();
+        }
+        return keyspaceMetadata.getReplicationStrategy().calculateNaturalEndpoints(token);
+    }
+
+    @JsonIgnore
+    public List<InetAddress> getReplicas(String keyspace, long token) {
+        ReplicaMap replicaMap = getReplicaMap(keyspace);
+        if (replicaMap != null && replicaMap.size() > 0) {
+            return replicaMap.getReplicas(token);
+        }
+        return getReplicas(keyspace, new Partitioner.Murmur3Partitioner.LongToken(token));
+    }
+
+    @JsonIgnore
+    public ReplicaSet getReplicaSet(String keyspace, Partitioner.Token token) {
+        ReplicaMap replicaMap = getReplicaMap(keyspace);
+        if (replicaMap != null) {
+            return replicaMap.getReplicaSet(token);
+        }
+        List<InetAddress> replicas = getReplicas(keyspace, token);
+        return replicas.isEmpty() ? ReplicaSet.EMPTY : new ReplicaSet(this, replicas);
+    }
+
+    @JsonIgnore
+    public ReplicaSet getReplicaSet(String keyspace, long token) {
+        ReplicaMap replicaMap = getReplicaMap(keyspace);
+        if (replicaMap != null && replicaMap.size() > 0) {
+            return replicaMap.getReplicaSet(token);
+        }
+        return getReplicaSet(keyspace, new Partitioner.Murmur3Partitioner.LongToken(token));
+    }
+
+    @JsonIgnore
+    public ReplicaMap getReplicaMap(String keyspace) {
+        ReplicaMap replicaMap = replicaMaps.get(keyspace);
+        if (replicaMap == null || replicaMap.version() != topologyVersion.get()) {
+            replicaMapKeyspaces.add(keyspace);
+            scheduleReplicaMapRebuild();
+        }
+        return replicaMap;
+    }
+
+    protected void topologyChanged() {
+        topologyVersion.incrementAndGet();
+        if (!replicaMapKeyspaces.isEmpty()) {
+            scheduleReplicaMapRebuild();
+        }
+    }
+
+    private void keyspaceChanged(String keyspace) {
+        replicaMaps.remove(keyspace);
+        if (replicaMapKeyspaces.contains(keyspace)) {
+            scheduleReplicaMapRebuild();
+        }
+    }
+
+    private void scheduleReplicaMapRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            REPLICA_MAP_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    rebuildScheduled.set(false);
+                    rebuildReplicaMaps();
+                }
+            });
+        }
+    }
+
+    private void rebuildReplicaMaps() {
+        long version = topologyVersion.get();
+        List<Partitioner.Token> ring = null;
+        boolean stale = false;
+        for (String keyspace : replicaMapKeyspaces) {
+            KeyspaceMetadata keyspaceMetadata = getKeyspace(keyspace);
+            if (keyspaceMetadata == null || keyspaceMetadata.getReplicationStrategy() == null) {
+                replicaMapKeyspaces.remove(keyspace);
+                replicaMaps.remove(keyspace);
+                continue;
+            }
+            ReplicationStrategy replicationStrategy = keyspaceMetadata.getReplicationStrategy();
+            ReplicaMap replicaMap = replicaMaps.get(keyspace);
+            if (replicaMap != null && replicaMap.version() == version && replicaMap.replicationStrategy() == replicationStrategy) {
+                continue;
+            }
+            if (ring == null) {
+                ring = new ArrayList<Partitioner.Token>(tokenring.keySet());
+                TokenRing tokenRing = getTokenRing();
+                for (int i = 0; i < tokenRing.size(); i++) {
+                    ring.add(new Partitioner.Murmur3Partitioner.LongToken(tokenRing.tokenAt(i)));
+                }
+            }
+            try {
+                replicaMaps.put(keyspace, new ReplicaMap(version, ring, replicationStrategy));
+            } catch (RuntimeException e) {
+                replicaMaps.remove(keyspace);
+            }
+            keyspaceMetadata = getKeyspace(keyspace);
+            if (keyspaceMetadata == null || keyspaceMetadata.getReplicationStrategy() != replicationStrategy) {
+                replicaMaps.remove(keyspace);
+                stale = true;
+            }
+        }
+        if (stale || version != topologyVersion.get()) {
+            scheduleReplicaMapRebuild();
+        }
     }
 
     @JsonIgnore
     public int getRingSize() {
-        return tokenring.size();
+        return tokenring.size() + getTokenRing().size();
+    }
+
+    @JsonIgnore
+    public InetAddress getPrimaryReplica(String keyspace, Partitioner.Token token, RoutingPolicy routingPolicy) {
+        for (InetAddress replica : getReplicas(keyspace, token)) {
+            PeerMetadata peer = peers.get(replica);
+            if (peer != null && peer.isUp() && routingPolicy.isLocal(replica)) {
+                return replica;
+            }
+        }
+        return null;
     }
 
     @JsonIgnore
@@ -186,13 +373,25 @@ public abstract class Metadata extends MetadataEntity {
                 rack2EndpointList.add(peer.getAddress());
             }
         }
-        for (String tokenString : peer.getTokens()) {
-            Partitioner partitioner = getPartitioner();
-            if (partitioner != null) {
+        Partitioner partitioner = getPartitioner();
+        if (partitioner instanceof Partitioner.Murmur3Partitioner) {
+            long[] tokens = new long[peer.getTokens().size()];
+            int i = 0;
+            for (String tokenString : peer.getTokens()) {
+                tokens[i++] = Long.parseLong(tokenString);
+            }
+            synchronized (peerTokens) {
+                peerTokens.remove(peer.getAddress());
+                peerTokens.put(peer.getAddress(), tokens);
+                ringChanged = true;
+            }
+        } else if (partitioner != null) {
+            for (String tokenString : peer.getTokens()) {
                 Partitioner.Token token = partitioner.getToken(tokenString);
                 tokenring.put(token, peer.getAddress());
             }
         }
+        topologyChanged();
     }
 
     protected void setPeerAsUp(InetAddress endpoint) {
@@ -221,13 +420,21 @@ public abstract class Metadata extends MetadataEntity {
                 endpoints.remove(endpoint);
             }
         }
-        Iterator<InetAddress> iterator = tokenring.values().iterator();
-        while (iterator.hasNext()) {
-            InetAddress ep = iterator.next();
-            if (endpoint.equals(ep)) {
-                iterator.remove();
+        synchronized (peerTokens) {
+            if (peerTokens.remove(endpoint) != null) {
+                ringChanged = true;
             }
         }
+        if (!tokenring.isEmpty()) {
+            Iterator<InetAddress> iterator = tokenring.values().iterator();
+            while (iterator.hasNext()) {
+                InetAddress ep = iterator.next();
+                if (endpoint.equals(ep)) {
+                    iterator.remove();
+                }
+            }
+        }
+        topologyChanged();
     }
 
     @JsonIgnore
@@ -247,11 +454,14 @@ public abstract class Metadata extends MetadataEntity {
 
     protected void addKeyspace(KeyspaceMetadata keyspace) {
         keyspaces.put(keyspace.getName(), keyspace);
+        keyspaceChanged(keyspace.getName());
     }
 
     protected void removeKeyspace(String keyspace) {
         keyspaces.remove(keyspace);
         tables.remove(keyspace);
+        replicaMapKeyspaces.remove(keyspace);
+        replicaMaps.remove(keyspace);
     }
 
     @JsonIgnore
@@ -380,6 +590,13 @@ public abstract class Metadata extends MetadataEntity {
         dc2Endpoints.clear();
         rack2Endpoints.clear();
         tokenring.clear();
+        synchronized (peerTokens) {
+            peerTokens.clear();
+            ring = TokenRing.EMPTY;
+            ringChanged = false;
+        }
+        replicaMaps.clear();
+        topologyChanged();
     }
 
     protected static String globalTable(String keyspace, String table) {
@@ -43,16 +43,58 @@ public abstract class Partitioner {
         public static final Murmur3Partitioner INSTANCE = new Murmur3Partitioner();
         public static final LongToken MINIMUM = new LongToken(Long.MIN_VALUE);
 
+        private static final ThreadLocal<ByteBuffer> scratch = new ThreadLocal<ByteBuffer>() {
+            @Override
+            protected ByteBuffer initialValue() {
+                return ByteBuffer.allocate(256);
+            }
+        };
+
         @Override
         public LongToken getToken(ByteBuffer partitionKey) {
             if (partitionKey.remaining() == 0) {
                 return MINIMUM;
             }
-            long hash = MurmurHash.hash3_x64_128(partitionKey, partitionKey.position(), partitionKey.remaining(), 0)[0];
-            if (hash == Long.MIN_VALUE) {
-                return new LongToken(Long.MAX_VALUE);
+            return new LongToken(getTokenValue(partitionKey));
+        }
+
+        public long getTokenValue(ByteBuffer partitionKey) {
+            return hash(partitionKey, partitionKey.position(), partitionKey.remaining());
+        }
+
+        public long getTokenValue(ByteBuffer[] values, int[] indexes) {
+            if (indexes.length == 1) {
+                return getTokenValue(values[indexes[0]]);
+            }
+            int size = 0;
+            for (int index : indexes) {
+                size += 2 + values[index].remaining() + 1;
+            }
+            ByteBuffer bytes = scratch.get();
+            if (bytes.capacity() < size) {
+                bytes = ByteBuffer.allocate(Math.max(size, bytes.capacity() * 2));
+                scratch.set(bytes);
+            }
+            bytes.clear();
+            for (int index : indexes) {
+                ByteBuffer value = values[index];
+                int len = value.remaining();
+                bytes.put((byte)((len >> 8) & 0xFF));
+                bytes.put((byte)(len & 0xFF));
+                for (int i = value.position(); i < value.limit(); i++) {
+                    bytes.put(value.get(i));
+                }
+                bytes.put((byte)0);
             }
-            return new LongToken(hash);
+            return hash(bytes, 0, size);
+        }
+
+        private static long hash(ByteBuffer key, int offset, int length) {
+            if (length == 0) {
+                return Long.MIN_VALUE;
+            }
+            long hash = MurmurHash.hash3_x64_64(key, offset, length, 0);
+            return hash == Long.MIN_VALUE ? Long.MAX_VALUE : hash;
         }
 
         @Override
@@ -363,6 +405,16 @@ public abstract class Partitioner {
     public static class MurmurHash {
 
         public static long[] hash3_x64_128(ByteBuffer key, int offset, int length, long seed) {
+            long[] result = new long[2];
+            hash3_x64_128(key, offset, length, seed, result);
+            return result;
+        }
+
+        public static long hash3_x64_64(ByteBuffer key, int offset, int length, long seed) {
+            return hash3_x64_128(key, offset, length, seed, null);
+        }
+
+        private static long hash3_x64_128(ByteBuffer key, int offset, int length, long seed, long[] result) {
             final int nblocks = length >> 4;
 
             long h1 = seed;
@@ -453,7 +505,11 @@ public abstract class Partitioner {
             h1 += h2;
             h2 += h1;
 
-            return (new long[]{h1, h2});
+            if (result != null) {
+                result[0] = h1;
+                result[1] = h2;
+            }
+            return h1;
         }
 
         protected static long getblock(ByteBuffer key, int offset, int index) {
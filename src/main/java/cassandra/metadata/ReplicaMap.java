@@ -0,0 +1,84 @@
+package cassandra.metadata;
+
+import java.net.InetAddress;
+import java.util.*;
+
+public class ReplicaMap {
+
+    private final long version;
+    private final ReplicationStrategy replicationStrategy;
+    private final Partitioner.Token[] tokens;
+    private final long[] longTokens;
+    private final List<ReplicaSet> replicas;
+
+    ReplicaMap(long version, List<Partitioner.Token> ring, ReplicationStrategy replicationStrategy) {
+        this.version = version;
+        this.replicationStrategy = replicationStrategy;
+        tokens = ring.toArray(new Partitioner.Token[ring.size()]);
+        replicas = new ArrayList<ReplicaSet>(tokens.length);
+        boolean murmur3 = tokens.length > 0;
+        for (Partitioner.Token token : tokens) {
+            murmur3 &= token instanceof Partitioner.Murmur3Partitioner.LongToken;
+        }
+        longTokens = murmur3 ? new long[tokens.length] : null;
+        Metadata metadata = replicationStrategy.getKeyspace().getMetadata();
+        Map<List<InetAddress>, ReplicaSet> shared = new HashMap<List<InetAddress>, ReplicaSet>();
+        for (int i = 0; i < tokens.length; i++) {
+            if (longTokens != null) {
+                longTokens[i] = ((Partitioner.Murmur3Partitioner.LongToken)tokens[i]).value;
+            }
+            List<InetAddress> endpoints = replicationStrategy.calculateNaturalEndpoints(tokens[i]);
+            ReplicaSet replicaSet = shared.get(endpoints);
+            if (replicaSet == null) {
+                replicaSet = new ReplicaSet(metadata, endpoints);
+                shared.put(endpoints, replicaSet);
+            }
+            replicas.add(replicaSet);
+        }
+    }
+
+    public long version() {
+        return version;
+    }
+
+    ReplicationStrategy replicationStrategy() {
+        return replicationStrategy;
+    }
+
+    public int size() {
+        return tokens.length;
+    }
+
+    public List<InetAddress> getReplicas(Partitioner.Token token) {
+        return getReplicaSet(token).asList();
+    }
+
+    public List<InetAddress> getReplicas(long token) {
+        return getReplicaSet(token).asList();
+    }
+
+    public ReplicaSet getReplicaSet(Partitioner.Token token) {
+        if (tokens.length == 0) {
+            return ReplicaSet.EMPTY;
+        }
+        if (longTokens != null && token instanceof Partitioner.Murmur3Partitioner.LongToken) {
+            return getReplicaSet(((Partitioner.Murmur3Partitioner.LongToken)token).value);
+        }
+        int index = Arrays.binarySearch(tokens, token);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return replicas.get(index < tokens.length ? index : 0);
+    }
+
+    public ReplicaSet getReplicaSet(long token) {
+        if (longTokens == null) {
+            return ReplicaSet.EMPTY;
+        }
+        int index = Arrays.binarySearch(longTokens, token);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return replicas.get(index < longTokens.length ? index : 0);
+    }
+}
@@ -0,0 +1,136 @@
+package cassandra.metadata;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public final class ReplicaSet {
+
+    public static final ReplicaSet EMPTY = new ReplicaSet(null, Collections.<InetAddress>emptyList());
+
+    private static final int MAX_MASK_SIZE = 64;
+
+    private final InetAddress[] endpoints;
+    private final int[] hashes;
+    private final String[] datacenters;
+    private final String[] racks;
+    private final List<InetAddress> list;
+    private volatile Locality locality;
+
+    ReplicaSet(Metadata metadata, List<InetAddress> replicas) {
+        endpoints = replicas.toArray(new InetAddress[replicas.size()]);
+        hashes = new int[endpoints.length];
+        datacenters = new String[endpoints.length];
+        racks = new String[endpoints.length];
+        for (int i = 0; i < endpoints.length; i++) {
+            hashes[i] = endpoints[i].hashCode();
+            PeerMetadata peer = metadata != null ? metadata.getPeer(endpoints[i]) : null;
+            if (peer != null) {
+                datacenters[i] = peer.hasDatacenter() ? peer.getDatacenter() : null;
+                racks[i] = peer.hasRack() ? peer.getRack() : null;
+            }
+        }
+        list = Collections.unmodifiableList(Arrays.asList(endpoints));
+    }
+
+    public int size() {
+        return endpoints.length;
+    }
+
+    public boolean isEmpty() {
+        return endpoints.length == 0;
+    }
+
+    public InetAddress get(int index) {
+        return endpoints[index];
+    }
+
+    public String getDatacenter(int index) {
+        return datacenters[index];
+    }
+
+    public String getRack(int index) {
+        return racks[index];
+    }
+
+    public int indexOf(InetAddress endpoint) {
+        int hash = endpoint.hashCode();
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] == hash && endpoints[i].equals(endpoint)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public List<InetAddress> asList() {
+        return list;
+    }
+
+    public Locality locality(String datacenter, String rack) {
+        Locality locality = this.locality;
+        if (locality != null && equals(locality.datacenter, datacenter) && equals(locality.rack, rack)) {
+            return locality;
+        }
+        long local = 0, localRack = 0;
+        for (int i = 0; i < endpoints.length && i < MAX_MASK_SIZE; i++) {
+            if (datacenter == null || datacenter.equals(datacenters[i])) {
+                local |= 1L << i;
+                if (rack != null && rack.equals(racks[i])) {
+                    localRack |= 1L << i;
+                }
+            }
+        }
+        locality = new Locality(datacenter, rack, local, localRack);
+        this.locality = locality;
+        return locality;
+    }
+
+    public Locality locality(long local, long localRack) {
+        return new Locality(null, null, local, localRack & local);
+    }
+
+    @Override
+    public String toString() {
+        return list.toString();
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    public static final class Locality {
+
+        private final String datacenter;
+        private final String rack;
+        private final long local;
+        private final int[] order;
+
+        private Locality(String datacenter, String rack, long local, long localRack) {
+            this.datacenter = datacenter;
+            this.rack = rack;
+            this.local = local;
+            order = new int[Long.bitCount(local)];
+            int position = 0;
+            for (long bits = localRack; bits != 0; bits &= bits - 1) {
+                order[position++] = Long.numberOfTrailingZeros(bits);
+            }
+            for (long bits = local & ~localRack; bits != 0; bits &= bits - 1) {
+                order[position++] = Long.numberOfTrailingZeros(bits);
+            }
+        }
+
+        public boolean isLocal(int index) {
+            return index >= 0 && index < MAX_MASK_SIZE && (local & (1L << index)) != 0;
+        }
+
+        public int size() {
+            return order.length;
+        }
+
+        public int indexAt(int position) {
+            return order[position];
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package cassandra.metadata;
+
+import java.net.InetAddress;
+import java.util.*;
+
+public final class TokenRing {
+
+    static final TokenRing EMPTY = new TokenRing(new long[0], new int[0], new InetAddress[0]);
+
+    static TokenRing build(Map<InetAddress, long[]> peerTokens) {
+        int size = 0;
+        for (long[] tokens : peerTokens.values()) {
+            size += tokens.length;
+        }
+        if (size == 0) {
+            return EMPTY;
+        }
+        InetAddress[] hosts = new InetAddress[peerTokens.size()];
+        long[] tokens = new long[size];
+        int[] hostIndexes = new int[size];
+        int host = 0, n = 0;
+        for (Map.Entry<InetAddress, long[]> entry : peerTokens.entrySet()) {
+            hosts[host] = entry.getKey();
+            for (long token : entry.getValue()) {
+                tokens[n] = token;
+                hostIndexes[n] = host;
+                n++;
+            }
+            host++;
+        }
+        sort(tokens, hostIndexes, 0, n - 1);
+        int unique = 1;
+        for (int i = 1; i < n; i++) {
+            if (tokens[i] != tokens[unique - 1]) {
+                tokens[unique] = tokens[i];
+                hostIndexes[unique] = hostIndexes[i];
+                unique++;
+            } else if (hostIndexes[i] > hostIndexes[unique - 1]) {
+                hostIndexes[unique - 1] = hostIndexes[i];
+            }
+        }
+        if (unique < n) {
+            tokens = Arrays.copyOf(tokens, unique);
+            hostIndexes = Arrays.copyOf(hostIndexes, unique);
+        }
+        return new TokenRing(tokens, hostIndexes, hosts);
+    }
+
+    private final long[] tokens;
+    private final int[] hostIndexes;
+    private final InetAddress[] hosts;
+
+    private TokenRing(long[] tokens, int[] hostIndexes, InetAddress[] hosts) {
+        this.tokens = tokens;
+        this.hostIndexes = hostIndexes;
+        this.hosts = hosts;
+    }
+
+    public int size() {
+        return tokens.length;
+    }
+
+    public boolean isEmpty() {
+        return tokens.length == 0;
+    }
+
+    public long tokenAt(int index) {
+        return tokens[index];
+    }
+
+    public InetAddress hostAt(int index) {
+        return hosts[hostIndexes[index]];
+    }
+
+    public int hostIndexAt(int index) {
+        return hostIndexes[index];
+    }
+
+    public int hostCount() {
+        return hosts.length;
+    }
+
+    public InetAddress host(int hostIndex) {
+        return hosts[hostIndex];
+    }
+
+    public int ceilingIndex(long token) {
+        int index = Arrays.binarySearch(tokens, token);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index < tokens.length ? index : 0;
+    }
+
+    public Iterator<Map.Entry<Partitioner.Token, InetAddress>> iterator(long start) {
+        if (tokens.length == 0) {
+            return Collections.<Map.Entry<Partitioner.Token, InetAddress>>emptyList().iterator();
+        }
+        final int first = ceilingIndex(start);
+        return new Iterator<Map.Entry<Partitioner.Token, InetAddress>>() {
+
+            private int remaining = tokens.length;
+            private int index = first;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public Map.Entry<Partitioner.Token, InetAddress> next() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                remaining--;
+                Map.Entry<Partitioner.Token, InetAddress> entry = new AbstractMap.SimpleImmutableEntry<Partitioner.Token, InetAddress>(new Partitioner.Murmur3Partitioner.LongToken(tokens[index]), hostAt(index));
+                index = index + 1 < tokens.length ? index + 1 : 0;
+                return entry;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private static void sort(long[] tokens, int[] hostIndexes, int lo, int hi) {
+        while (lo < hi) {
+            long pivot = tokens[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (tokens[i] < pivot) {
+                    i++;
+                }
+                while (tokens[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    long token = tokens[i];
+                    tokens[i] = tokens[j];
+                    tokens[j] = token;
+                    int host = hostIndexes[i];
+                    hostIndexes[i] = hostIndexes[j];
+                    hostIndexes[j] = host;
+                    i++;
+                    j--;
+                }
+            }
+            if (j - lo < hi - i) {
+                sort(tokens, hostIndexes, lo, j);
+                lo = i;
+            } else {
+                sort(tokens, hostIndexes, i, hi);
+                hi = j;
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package cassandra.protocol;
 
 import cassandra.CassandraDriver;
 import cassandra.CassandraException;
+import cassandra.cql.AbstractStatement;
 import cassandra.cql.BatchStatement;
 import cassandra.cql.Consistency;
 import cassandra.cql.PreparedStatement;
@@ -839,10 +840,38 @@ public abstract class CassandraMessage extends Message {
             public final Object stringOrId;
             public final List<ByteBuffer> values;
 
+            public static QueryValue valueOf(AbstractStatement<?> statement) {
+                Object stringOrId;
+                PreparedStatement pstmt = PreparedStatement.definitionOf(statement);
+                if (pstmt != null) {
+                    stringOrId = pstmt.getId();
+                } else {
+                    stringOrId = statement.getQuery();
+                }
+                List<ByteBuffer> values;
+                if (statement.hasParameters()) {
+                    values = Arrays.asList(statement.getParameters());
+                } else {
+                    values = Collections.emptyList();
+                }
+                return new QueryValue(stringOrId, values);
+            }
+
             public QueryValue(Object stringOrId, List<ByteBuffer> values) {
                 this.stringOrId = stringOrId;
                 this.values = values;
             }
+
+            public int getApproximateSize() {
+                int size = 1;
+                if (stringOrId instanceof String) {
+                    size += MessageOutputStream.computeLongStringSize((String)stringOrId);
+                } else {
+                    size += MessageOutputStream.computeBytesSize(((PreparedStatement.StatementId)stringOrId).array());
+                }
+                size += MessageOutputStream.computeValueListSize(values);
+                return size;
+            }
         }
 
         public final BatchStatement.Type type;
@@ -879,13 +908,7 @@ public abstract class CassandraMessage extends Message {
         public int getApproximateSize() {
             int size = 1 + 2;
             for (Batch.QueryValue query : queries) {
-                size += 1;
-                if (query.stringOrId instanceof String) {
-                    size += MessageOutputStream.computeLongStringSize((String)query.stringOrId);
-                } else {
-                    size += MessageOutputStream.computeBytesSize(((PreparedStatement.StatementId)query.stringOrId).array());
-                }
-                size += MessageOutputStream.computeValueListSize(query.values);
+                size += query.getApproximateSize();
             }
             size += 2;
             return size;
@@ -0,0 +1,51 @@
+package cassandra.retry;
+
+import cassandra.CassandraException;
+import io.netty.util.internal.ThreadLocalRandom;
+
+public class ExponentialBackoffRetryPolicy extends RetryPolicy.Wrapper {
+
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 10;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 1000;
+
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    public ExponentialBackoffRetryPolicy(RetryPolicy retryPolicy) {
+        this(retryPolicy, DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    public ExponentialBackoffRetryPolicy(RetryPolicy retryPolicy, long baseDelayMillis, long maxDelayMillis) {
+        super(retryPolicy);
+        if (baseDelayMillis <= 0) {
+            throw new IllegalArgumentException(String.format("baseDelayMillis: %d (expected: > 0)", baseDelayMillis));
+        }
+        if (maxDelayMillis < baseDelayMillis) {
+            throw new IllegalArgumentException(String.format("maxDelayMillis: %d (expected: >= %d)", maxDelayMillis, baseDelayMillis));
+        }
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    @Override
+    public boolean canRetry(RetryContext context) {
+        if (!retryPolicy.canRetry(context)) {
+            return false;
+        }
+        Throwable cause = context.getLastThrowable();
+        if (cause instanceof CassandraException.Unprepared) {
+            return true;
+        }
+        int exponent = Math.max(0, context.getRetryCount() - 1);
+        if (cause instanceof CassandraException.Overloaded) {
+            exponent += 2;
+        }
+        long ceiling = baseDelayMillis << Math.min(exponent, 20);
+        if (ceiling <= 0 || ceiling > maxDelayMillis) {
+            ceiling = maxDelayMillis;
+        }
+        long floor = cause instanceof CassandraException.Overloaded ? ceiling / 2 : 0;
+        context.setRetryDelayMillis(floor + (long)(ThreadLocalRandom.current().nextDouble() * (ceiling - floor)));
+        return true;
+    }
+}
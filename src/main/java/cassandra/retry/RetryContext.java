@@ -9,6 +9,7 @@ public class RetryContext {
     private final Iterator<InetAddress> activeEndpoints;
     private InetAddress currentEndpoint;
     private int retryCount;
+    private long retryDelayMillis;
     private Throwable lastException;
 
     public RetryContext(RetryPolicy retryPolicy, Iterator<InetAddress> activeEndpoints) {
@@ -27,9 +28,22 @@ public class RetryContext {
     }
 
     public boolean canRetry() {
+        retryDelayMillis = 0;
         return retryPolicy.canRetry(this);
     }
 
+    public long getRetryDelayMillis() {
+        return retryDelayMillis;
+    }
+
+    public RetryContext setRetryDelayMillis(long retryDelayMillis) {
+        if (retryDelayMillis < 0) {
+            throw new IllegalArgumentException(String.format("retryDelayMillis: %d (expected: >= 0)", retryDelayMillis));
+        }
+        this.retryDelayMillis = retryDelayMillis;
+        return this;
+    }
+
     public int getRetryCount() {
         return retryCount;
     }
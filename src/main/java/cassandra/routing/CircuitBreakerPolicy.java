@@ -0,0 +1,393 @@
+package cassandra.routing;
+
+import cassandra.CassandraException;
+import cassandra.cql.AbstractStatement;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.internal.PlatformDependent.newConcurrentHashMap;
+
+public class CircuitBreakerPolicy extends RoutingPolicy.Wrapper implements LatencyTracker {
+
+    public static enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    public static interface Listener {
+
+        void onStateChanged(InetAddress endpoint, State previous, State state);
+    }
+
+    private final ConcurrentMap<InetAddress, Breaker> breakers;
+    private final List<Listener> listeners;
+    private int windowSize;
+    private int minimumRequests;
+    private int failureRateThreshold;
+    private int consecutiveFailureThreshold;
+    private long openDurationNanos;
+    private int halfOpenProbes;
+
+    public CircuitBreakerPolicy(RoutingPolicy routingPolicy) {
+        super(routingPolicy);
+        breakers = newConcurrentHashMap();
+        listeners = new CopyOnWriteArrayList<Listener>();
+        windowSize = 100;
+        minimumRequests = 20;
+        failureRateThreshold = 50;
+        consecutiveFailureThreshold = 5;
+        openDurationNanos = TimeUnit.SECONDS.toNanos(5);
+        halfOpenProbes = 3;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public CircuitBreakerPolicy setWindowSize(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException(String.format("windowSize: %d (expected: > 0)", windowSize));
+        }
+        this.windowSize = windowSize;
+        return this;
+    }
+
+    public int getMinimumRequests() {
+        return minimumRequests;
+    }
+
+    public CircuitBreakerPolicy setMinimumRequests(int minimumRequests) {
+        if (minimumRequests <= 0) {
+            throw new IllegalArgumentException(String.format("minimumRequests: %d (expected: > 0)", minimumRequests));
+        }
+        this.minimumRequests = minimumRequests;
+        return this;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public CircuitBreakerPolicy setFailureRateThreshold(int failureRateThreshold) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 100) {
+            throw new IllegalArgumentException(String.format("failureRateThreshold: %d (expected: > 0 and <= 100)", failureRateThreshold));
+        }
+        this.failureRateThreshold = failureRateThreshold;
+        return this;
+    }
+
+    public int getConsecutiveFailureThreshold() {
+        return consecutiveFailureThreshold;
+    }
+
+    public CircuitBreakerPolicy setConsecutiveFailureThreshold(int consecutiveFailureThreshold) {
+        if (consecutiveFailureThreshold < 0) {
+            throw new IllegalArgumentException(String.format("consecutiveFailureThreshold: %d (expected: >= 0)", consecutiveFailureThreshold));
+        }
+        this.consecutiveFailureThreshold = consecutiveFailureThreshold;
+        return this;
+    }
+
+    public long getOpenDuration(TimeUnit unit) {
+        return unit.convert(openDurationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public CircuitBreakerPolicy setOpenDuration(long openDuration, TimeUnit unit) {
+        if (openDuration <= 0) {
+            throw new IllegalArgumentException(String.format("openDuration: %d (expected: > 0)", openDuration));
+        }
+        openDurationNanos = unit.toNanos(openDuration);
+        return this;
+    }
+
+    public int getHalfOpenProbes() {
+        return halfOpenProbes;
+    }
+
+    public CircuitBreakerPolicy setHalfOpenProbes(int halfOpenProbes) {
+        if (halfOpenProbes <= 0) {
+            throw new IllegalArgumentException(String.format("halfOpenProbes: %d (expected: > 0)", halfOpenProbes));
+        }
+        this.halfOpenProbes = halfOpenProbes;
+        return this;
+    }
+
+    public CircuitBreakerPolicy addListener(Listener listener) {
+        if (listener == null) {
+            throw new NullPointerException("listener");
+        }
+        listeners.add(listener);
+        return this;
+    }
+
+    public State getState(InetAddress endpoint) {
+        Breaker breaker = breakers.get(endpoint);
+        return breaker == null ? State.CLOSED : breaker.state(System.nanoTime());
+    }
+
+    public Map<InetAddress, State> getStates() {
+        long now = System.nanoTime();
+        Map<InetAddress, State> states = new LinkedHashMap<InetAddress, State>();
+        for (Map.Entry<InetAddress, Breaker> e : breakers.entrySet()) {
+            states.put(e.getKey(), e.getValue().state(now));
+        }
+        return Collections.unmodifiableMap(states);
+    }
+
+    @Override
+    public void start(InetAddress endpoint) {
+        if (endpoint == null) {
+            return;
+        }
+        Breaker breaker = breakers.get(endpoint);
+        if (breaker != null) {
+            breaker.acquire();
+        }
+    }
+
+    @Override
+    public void update(InetAddress endpoint, long latencyNanos, Throwable cause) {
+        if (endpoint == null) {
+            return;
+        }
+        Breaker breaker = breakers.get(endpoint);
+        if (breaker == null) {
+            Breaker newBreaker = new Breaker(endpoint, windowSize);
+            breaker = breakers.putIfAbsent(endpoint, newBreaker);
+            if (breaker == null) {
+                breaker = newBreaker;
+            }
+        }
+        breaker.record(!isFailure(cause));
+    }
+
+    @Override
+    public boolean isLocal(InetAddress endpoint) {
+        return routingPolicy.isLocal(endpoint);
+    }
+
+    @Override
+    public Iterator<InetAddress> activeEndpoints(final AbstractStatement<?> statement) {
+        final Iterator<InetAddress> child = routingPolicy.activeEndpoints(statement);
+        if (breakers.isEmpty()) {
+            return child;
+        }
+        return new Iterator<InetAddress>() {
+
+            private List<InetAddress> rejected;
+            private Iterator<InetAddress> fallback;
+            private boolean routed;
+            private InetAddress next;
+
+            @Override
+            public boolean hasNext() {
+                if (next != null) {
+                    return true;
+                }
+                while (child.hasNext()) {
+                    InetAddress endpoint = child.next();
+                    if (endpoint == null) {
+                        continue;
+                    }
+                    Breaker breaker = breakers.get(endpoint);
+                    if (breaker == null || breaker.isAdmissible(System.nanoTime())) {
+                        routed = true;
+                        next = endpoint;
+                        return true;
+                    }
+                    if (!routed) {
+                        if (rejected == null) {
+                            rejected = new ArrayList<InetAddress>(2);
+                        }
+                        rejected.add(endpoint);
+                    }
+                }
+                if (routed || rejected == null) {
+                    return false;
+                }
+                if (fallback == null) {
+                    fallback = rejected.iterator();
+                }
+                if (fallback.hasNext()) {
+                    next = fallback.next();
+                    return true;
+                }
+                return false;
+            }
+
+            @Override
+            public InetAddress next() {
+                InetAddress endpoint = null;
+                if (hasNext()) {
+                    endpoint = next;
+                    next = null;
+                }
+                return endpoint;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public void addEndpoint(InetAddress endpoint) {
+        routingPolicy.addEndpoint(endpoint);
+    }
+
+    @Override
+    public void removeEndpoint(InetAddress endpoint) {
+        Breaker breaker = breakers.remove(endpoint);
+        if (breaker != null) {
+            breaker.reset();
+        }
+        routingPolicy.removeEndpoint(endpoint);
+    }
+
+    private static boolean isFailure(Throwable cause) {
+        if (cause == null) {
+            return false;
+        }
+        if (cause instanceof CassandraException) {
+            return cause instanceof CassandraException.Timeout
+                    || cause instanceof CassandraException.Overloaded
+                    || cause instanceof CassandraException.IsBootstrapping
+                    || cause instanceof CassandraException.ServerError;
+        }
+        return true;
+    }
+
+    private void fireStateChanged(InetAddress endpoint, State previous, State state) {
+        for (Listener listener : listeners) {
+            listener.onStateChanged(endpoint, previous, state);
+        }
+    }
+
+    private class Breaker {
+
+        private final InetAddress endpoint;
+        private final boolean[] window;
+        private int index, count, failures, consecutiveFailures;
+        private State state;
+        private long openedAt;
+        private int probes, probeSuccesses;
+
+        private Breaker(InetAddress endpoint, int windowSize) {
+            this.endpoint = endpoint;
+            window = new boolean[windowSize];
+            state = State.CLOSED;
+        }
+
+        private State state(long now) {
+            State previous, current;
+            synchronized (this) {
+                previous = state;
+                if (state == State.OPEN && now - openedAt >= openDurationNanos) {
+                    state = State.HALF_OPEN;
+                    openedAt = now;
+                    probes = 0;
+                    probeSuccesses = 0;
+                } else if (state == State.HALF_OPEN && probes >= halfOpenProbes && now - openedAt >= openDurationNanos) {
+                    openedAt = now;
+                    probes = 0;
+                }
+                current = state;
+            }
+            if (previous != current) {
+                fireStateChanged(endpoint, previous, current);
+            }
+            return current;
+        }
+
+        private boolean isAdmissible(long now) {
+            State current = state(now);
+            if (current == State.CLOSED) {
+                return true;
+            }
+            if (current == State.OPEN) {
+                return false;
+            }
+            synchronized (this) {
+                return state == State.CLOSED || (state == State.HALF_OPEN && probes < halfOpenProbes);
+            }
+        }
+
+        private synchronized void acquire() {
+            if (state == State.HALF_OPEN) {
+                probes++;
+            }
+        }
+
+        private void record(boolean success) {
+            State previous, current;
+            synchronized (this) {
+                previous = state;
+                if (state == State.HALF_OPEN) {
+                    if (!success) {
+                        open();
+                    } else if (++probeSuccesses >= halfOpenProbes) {
+                        close();
+                    }
+                } else if (state == State.CLOSED) {
+                    if (count == window.length) {
+                        if (!window[index]) {
+                            failures--;
+                        }
+                    } else {
+                        count++;
+                    }
+                    window[index] = success;
+                    index = (index + 1) % window.length;
+                    if (success) {
+                        consecutiveFailures = 0;
+                    } else {
+                        failures++;
+                        consecutiveFailures++;
+                    }
+                    if ((consecutiveFailureThreshold > 0 && consecutiveFailures >= consecutiveFailureThreshold)
+                            || (count >= minimumRequests && failures * 100 >= failureRateThreshold * count)) {
+                        open();
+                    }
+                }
+                current = state;
+            }
+            if (previous != current) {
+                fireStateChanged(endpoint, previous, current);
+            }
+        }
+
+        private void open() {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+
+        private void close() {
+            state = State.CLOSED;
+            index = 0;
+            count = 0;
+            failures = 0;
+            consecutiveFailures = 0;
+        }
+
+        private void reset() {
+            State previous;
+            synchronized (this) {
+                previous = state;
+                close();
+            }
+            if (previous != State.CLOSED) {
+                fireStateChanged(endpoint, previous, State.CLOSED);
+            }
+        }
+    }
+}
@@ -5,15 +5,18 @@ import cassandra.metadata.Metadata;
 import cassandra.metadata.PeerMetadata;
 
 import java.net.InetAddress;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.concurrent.ConcurrentMap;
-
-import static io.netty.util.internal.PlatformDependent.newConcurrentHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DCAwareRoundRobinPolicy implements RoutingPolicy {
 
     private final String datacenter;
-    private final ConcurrentMap<String, RoundRobinPolicy> dc2Policy;
+    private final Map<String, Integer> groups;
+    private final AtomicInteger counter;
+    private volatile EndpointSnapshot snapshot;
     private Metadata metadata;
 
     public DCAwareRoundRobinPolicy(String datacenter) {
@@ -24,14 +27,20 @@ public class DCAwareRoundRobinPolicy implements RoutingPolicy {
             throw new IllegalArgumentException("empty datacenter");
         }
         this.datacenter = datacenter;
-        dc2Policy = newConcurrentHashMap();
-        dc2Policy.put(datacenter, new RoundRobinPolicy());
+        groups = new HashMap<String, Integer>();
+        groups.put(datacenter, 0);
+        counter = new AtomicInteger(new Random().nextInt(997));
+        snapshot = EndpointSnapshot.EMPTY;
     }
 
     public String datacenter() {
         return datacenter;
     }
 
+    public long version() {
+        return snapshot.version();
+    }
+
     public void init(Metadata metadata) {
         this.metadata = metadata;
     }
@@ -46,48 +55,14 @@ public class DCAwareRoundRobinPolicy implements RoutingPolicy {
     }
 
     @Override
-    public Iterator<InetAddress> activeEndpoints(final AbstractStatement<?> statement) {
+    public Iterator<InetAddress> activeEndpoints(AbstractStatement<?> statement) {
         if (metadata == null) {
             metadata = statement.getSession().metadata();
             for (PeerMetadata peer : metadata.getPeers()) {
                 add(peer);
             }
         }
-        return new Iterator<InetAddress>() {
-
-            private final Iterator<InetAddress> local = dc2Policy.get(datacenter).activeEndpoints(statement);
-            private final Iterator<String> remotedc = dc2Policy.keySet().iterator();
-            private Iterator<InetAddress> current = local;
-
-            @Override
-            public boolean hasNext() {
-                for (;;) {
-                    if (current.hasNext()) {
-                        return true;
-                    }
-                    if (!remotedc.hasNext()) {
-                        return false;
-                    }
-                    while (remotedc.hasNext()) {
-                        String nextdc = remotedc.next();
-                        if (!nextdc.equals(datacenter)) {
-                            current = dc2Policy.get(nextdc).activeEndpoints(statement);
-                            break;
-                        }
-                    }
-                }
-            }
-
-            @Override
-            public InetAddress next() {
-                return current.next();
-            }
-
-            @Override
-            public void remove() {
-                throw new UnsupportedOperationException();
-            }
-        };
+        return snapshot.cursor(counter.getAndIncrement());
     }
 
     @Override
@@ -98,26 +73,19 @@ public class DCAwareRoundRobinPolicy implements RoutingPolicy {
     }
 
     @Override
-    public void removeEndpoint(InetAddress endpoint) {
-        for (RoutingPolicy policy : dc2Policy.values()) {
-            policy.removeEndpoint(endpoint);
-        }
+    public synchronized void removeEndpoint(InetAddress endpoint) {
+        snapshot = snapshot.remove(endpoint);
     }
 
-    private void add(PeerMetadata peer) {
-        if (metadata != null) {
-            if (peer != null && peer.hasDatacenter()) {
-                String dc = peer.getDatacenter();
-                RoundRobinPolicy policy = dc2Policy.get(dc);
-                if (policy == null) {
-                    RoundRobinPolicy newPolicy = new RoundRobinPolicy();
-                    policy = dc2Policy.putIfAbsent(dc, newPolicy);
-                    if (policy == null) {
-                        policy = newPolicy;
-                    }
-                }
-                policy.addEndpoint(peer.getAddress());
+    private synchronized void add(PeerMetadata peer) {
+        if (peer != null && peer.hasDatacenter()) {
+            String dc = peer.getDatacenter();
+            Integer group = groups.get(dc);
+            if (group == null) {
+                group = groups.size();
+                groups.put(dc, group);
             }
+            snapshot = snapshot.add(group, peer.getAddress());
         }
     }
 }
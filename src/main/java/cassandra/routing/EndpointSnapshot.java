@@ -0,0 +1,124 @@
+package cassandra.routing;
+
+import java.net.InetAddress;
+import java.util.Iterator;
+
+final class EndpointSnapshot {
+
+    static final EndpointSnapshot EMPTY = new EndpointSnapshot(0, new InetAddress[0][]);
+
+    private static final InetAddress[] NO_ENDPOINTS = new InetAddress[0];
+
+    private final long version;
+    private final InetAddress[][] groups;
+    private final int size;
+
+    private EndpointSnapshot(long version, InetAddress[][] groups) {
+        this.version = version;
+        this.groups = groups;
+        int size = 0;
+        for (InetAddress[] group : groups) {
+            size += group.length;
+        }
+        this.size = size;
+    }
+
+    long version() {
+        return version;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(InetAddress endpoint) {
+        for (InetAddress[] group : groups) {
+            for (InetAddress ep : group) {
+                if (ep.equals(endpoint)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    EndpointSnapshot add(int index, InetAddress endpoint) {
+        if (contains(endpoint)) {
+            return this;
+        }
+        InetAddress[][] newGroups = new InetAddress[Math.max(groups.length, index + 1)][];
+        for (int i = 0; i < newGroups.length; i++) {
+            newGroups[i] = i < groups.length ? groups[i] : NO_ENDPOINTS;
+        }
+        InetAddress[] group = newGroups[index];
+        InetAddress[] newGroup = new InetAddress[group.length + 1];
+        System.arraycopy(group, 0, newGroup, 0, group.length);
+        newGroup[group.length] = endpoint;
+        newGroups[index] = newGroup;
+        return new EndpointSnapshot(version + 1, newGroups);
+    }
+
+    EndpointSnapshot remove(InetAddress endpoint) {
+        for (int i = 0; i < groups.length; i++) {
+            InetAddress[] group = groups[i];
+            for (int j = 0; j < group.length; j++) {
+                if (group[j].equals(endpoint)) {
+                    InetAddress[] newGroup = new InetAddress[group.length - 1];
+                    System.arraycopy(group, 0, newGroup, 0, j);
+                    System.arraycopy(group, j + 1, newGroup, j, group.length - j - 1);
+                    InetAddress[][] newGroups = groups.clone();
+                    newGroups[i] = newGroup;
+                    return new EndpointSnapshot(version + 1, newGroups);
+                }
+            }
+        }
+        return this;
+    }
+
+    Iterator<InetAddress> cursor(int start) {
+        return new Cursor(groups, start);
+    }
+
+    private static final class Cursor implements Iterator<InetAddress> {
+
+        private final InetAddress[][] groups;
+        private final int start;
+        private int group;
+        private int offset;
+
+        private Cursor(InetAddress[][] groups, int start) {
+            this.groups = groups;
+            this.start = start;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (group < groups.length) {
+                if (offset < groups[group].length) {
+                    return true;
+                }
+                group++;
+                offset = 0;
+            }
+            return false;
+        }
+
+        @Override
+        public InetAddress next() {
+            if (!hasNext()) {
+                return null;
+            }
+            InetAddress[] endpoints = groups[group];
+            int base = start % endpoints.length;
+            if (base < 0) {
+                base += endpoints.length;
+            }
+            return endpoints[(base + offset++) % endpoints.length];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
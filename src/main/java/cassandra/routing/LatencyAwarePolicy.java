@@ -0,0 +1,296 @@
+package cassandra.routing;
+
+import cassandra.CassandraException;
+import cassandra.cql.AbstractStatement;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static io.netty.util.internal.PlatformDependent.newConcurrentHashMap;
+
+public class LatencyAwarePolicy extends RoutingPolicy.Wrapper implements LatencyTracker {
+
+    private final ConcurrentMap<InetAddress, Score> scores;
+    private double exclusionThreshold;
+    private long scaleNanos;
+    private long retryPeriodNanos;
+    private long updateRateNanos;
+    private int minSamples;
+    private volatile long minAverage;
+    private volatile long minAverageUpdatedAt;
+
+    public LatencyAwarePolicy(RoutingPolicy routingPolicy) {
+        super(routingPolicy);
+        scores = newConcurrentHashMap();
+        exclusionThreshold = 2.0;
+        scaleNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        retryPeriodNanos = TimeUnit.SECONDS.toNanos(10);
+        updateRateNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        minSamples = 50;
+        minAverage = -1;
+        minAverageUpdatedAt = System.nanoTime();
+    }
+
+    public double getExclusionThreshold() {
+        return exclusionThreshold;
+    }
+
+    public LatencyAwarePolicy setExclusionThreshold(double exclusionThreshold) {
+        if (exclusionThreshold < 1.0) {
+            throw new IllegalArgumentException(String.format("exclusionThreshold: %f (expected: >= 1.0)", exclusionThreshold));
+        }
+        this.exclusionThreshold = exclusionThreshold;
+        return this;
+    }
+
+    public long getScale(TimeUnit unit) {
+        return unit.convert(scaleNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public LatencyAwarePolicy setScale(long scale, TimeUnit unit) {
+        if (scale <= 0) {
+            throw new IllegalArgumentException(String.format("scale: %d (expected: > 0)", scale));
+        }
+        scaleNanos = unit.toNanos(scale);
+        return this;
+    }
+
+    public long getRetryPeriod(TimeUnit unit) {
+        return unit.convert(retryPeriodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public LatencyAwarePolicy setRetryPeriod(long retryPeriod, TimeUnit unit) {
+        if (retryPeriod < 0) {
+            throw new IllegalArgumentException(String.format("retryPeriod: %d (expected: >= 0)", retryPeriod));
+        }
+        retryPeriodNanos = unit.toNanos(retryPeriod);
+        return this;
+    }
+
+    public long getUpdateRate(TimeUnit unit) {
+        return unit.convert(updateRateNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public LatencyAwarePolicy setUpdateRate(long updateRate, TimeUnit unit) {
+        if (updateRate <= 0) {
+            throw new IllegalArgumentException(String.format("updateRate: %d (expected: > 0)", updateRate));
+        }
+        updateRateNanos = unit.toNanos(updateRate);
+        return this;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public LatencyAwarePolicy setMinSamples(int minSamples) {
+        if (minSamples < 0) {
+            throw new IllegalArgumentException(String.format("minSamples: %d (expected: >= 0)", minSamples));
+        }
+        this.minSamples = minSamples;
+        return this;
+    }
+
+    public Map<InetAddress, Snapshot> getScores() {
+        long now = System.nanoTime();
+        long min = minAverage(now);
+        Map<InetAddress, Snapshot> snapshots = new LinkedHashMap<InetAddress, Snapshot>();
+        for (Map.Entry<InetAddress, Score> e : scores.entrySet()) {
+            Score score = e.getValue();
+            snapshots.put(e.getKey(), new Snapshot(score.average, score.count, isExcluded(score, min, now)));
+        }
+        return Collections.unmodifiableMap(snapshots);
+    }
+
+    public boolean isExcluded(InetAddress endpoint) {
+        Score score = scores.get(endpoint);
+        if (score == null) {
+            return false;
+        }
+        long now = System.nanoTime();
+        return isExcluded(score, minAverage(now), now);
+    }
+
+    @Override
+    public void start(InetAddress endpoint) {
+    }
+
+    @Override
+    public void update(InetAddress endpoint, long latencyNanos, Throwable cause) {
+        if (endpoint == null || latencyNanos < 0) {
+            return;
+        }
+        if (cause != null && !(cause instanceof CassandraException.Timeout) && !(cause instanceof CassandraException.Overloaded) && !(cause instanceof TimeoutException)) {
+            return;
+        }
+        Score score = scores.get(endpoint);
+        if (score == null) {
+            Score newScore = new Score();
+            score = scores.putIfAbsent(endpoint, newScore);
+            if (score == null) {
+                score = newScore;
+            }
+        }
+        score.add(latencyNanos, scaleNanos);
+    }
+
+    @Override
+    public boolean isLocal(InetAddress endpoint) {
+        return routingPolicy.isLocal(endpoint);
+    }
+
+    @Override
+    public Iterator<InetAddress> activeEndpoints(final AbstractStatement<?> statement) {
+        final long now = System.nanoTime();
+        final long min = minAverage(now);
+        final Iterator<InetAddress> child = routingPolicy.activeEndpoints(statement);
+        if (min < 0) {
+            return child;
+        }
+        return new Iterator<InetAddress>() {
+
+            private List<InetAddress> excluded;
+            private Iterator<InetAddress> deferred;
+            private InetAddress next;
+
+            @Override
+            public boolean hasNext() {
+                if (next != null) {
+                    return true;
+                }
+                while (child.hasNext()) {
+                    InetAddress endpoint = child.next();
+                    if (endpoint == null) {
+                        continue;
+                    }
+                    Score score = scores.get(endpoint);
+                    if (score != null && isExcluded(score, min, now)) {
+                        if (excluded == null) {
+                            excluded = new ArrayList<InetAddress>(2);
+                        }
+                        excluded.add(endpoint);
+                        continue;
+                    }
+                    next = endpoint;
+                    return true;
+                }
+                if (deferred == null) {
+                    deferred = excluded == null ? Collections.<InetAddress>emptyList().iterator() : excluded.iterator();
+                }
+                if (deferred.hasNext()) {
+                    next = deferred.next();
+                    return true;
+                }
+                return false;
+            }
+
+            @Override
+            public InetAddress next() {
+                InetAddress endpoint = null;
+                if (hasNext()) {
+                    endpoint = next;
+                    next = null;
+                }
+                return endpoint;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public void addEndpoint(InetAddress endpoint) {
+        routingPolicy.addEndpoint(endpoint);
+    }
+
+    @Override
+    public void removeEndpoint(InetAddress endpoint) {
+        scores.remove(endpoint);
+        routingPolicy.removeEndpoint(endpoint);
+    }
+
+    private boolean isExcluded(Score score, long min, long now) {
+        if (min < 0 || score.count < minSamples) {
+            return false;
+        }
+        if (now - score.updatedAt > retryPeriodNanos) {
+            return false;
+        }
+        return score.average > min * exclusionThreshold;
+    }
+
+    private long minAverage(long now) {
+        if (now - minAverageUpdatedAt < updateRateNanos) {
+            return minAverage;
+        }
+        long min = -1;
+        for (Score score : scores.values()) {
+            if (score.count >= minSamples && now - score.updatedAt <= retryPeriodNanos && (min < 0 || score.average < min)) {
+                min = score.average;
+            }
+        }
+        minAverage = min;
+        minAverageUpdatedAt = now;
+        return min;
+    }
+
+    public static class Snapshot {
+
+        private final long average;
+        private final long count;
+        private final boolean excluded;
+
+        private Snapshot(long average, long count, boolean excluded) {
+            this.average = average;
+            this.count = count;
+            this.excluded = excluded;
+        }
+
+        public long getAverage(TimeUnit unit) {
+            return unit.convert(average, TimeUnit.NANOSECONDS);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public boolean isExcluded() {
+            return excluded;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Snapshot(average=%dus, count=%d, excluded=%s)", TimeUnit.NANOSECONDS.toMicros(average), count, excluded);
+        }
+    }
+
+    private static class Score {
+
+        private volatile long average = -1;
+        private volatile long count;
+        private volatile long updatedAt;
+
+        private synchronized void add(long latencyNanos, long scaleNanos) {
+            long now = System.nanoTime();
+            if (average < 0) {
+                average = latencyNanos;
+            } else {
+                double alpha = 1.0 - Math.exp(-(double)(now - updatedAt) / scaleNanos);
+                average = (long)(alpha * latencyNanos + (1.0 - alpha) * average);
+            }
+            updatedAt = now;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package cassandra.routing;
+
+import java.net.InetAddress;
+
+public interface LatencyTracker {
+
+    void start(InetAddress endpoint);
+
+    void update(InetAddress endpoint, long latencyNanos, Throwable cause);
+}
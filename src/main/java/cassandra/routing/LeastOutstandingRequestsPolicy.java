@@ -0,0 +1,164 @@
+package cassandra.routing;
+
+import cassandra.cql.AbstractStatement;
+import cassandra.metadata.ReplicaSet;
+import io.netty.util.internal.ThreadLocalRandom;
+
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.util.internal.PlatformDependent.newConcurrentHashMap;
+
+public class LeastOutstandingRequestsPolicy extends RoutingPolicy.Wrapper implements LatencyTracker {
+
+    private final ConcurrentMap<InetAddress, AtomicInteger> outstanding;
+    private final TokenAwareRoutingPolicy tokenAwarePolicy;
+    private int candidates;
+
+    public LeastOutstandingRequestsPolicy(RoutingPolicy routingPolicy) {
+        super(routingPolicy);
+        outstanding = newConcurrentHashMap();
+        RoutingPolicy policy = routingPolicy;
+        while (policy instanceof RoutingPolicy.Wrapper && !(policy instanceof TokenAwareRoutingPolicy)) {
+            policy = ((RoutingPolicy.Wrapper)policy).routingPolicy();
+        }
+        tokenAwarePolicy = policy instanceof TokenAwareRoutingPolicy ? (TokenAwareRoutingPolicy)policy : null;
+        candidates = 3;
+    }
+
+    public int getCandidates() {
+        return candidates;
+    }
+
+    public LeastOutstandingRequestsPolicy setCandidates(int candidates) {
+        if (candidates < 2) {
+            throw new IllegalArgumentException(String.format("candidates: %d (expected: >= 2)", candidates));
+        }
+        this.candidates = candidates;
+        return this;
+    }
+
+    public int getOutstanding(InetAddress endpoint) {
+        AtomicInteger counter = outstanding.get(endpoint);
+        return counter == null ? 0 : counter.get();
+    }
+
+    public Map<InetAddress, Integer> getOutstanding() {
+        Map<InetAddress, Integer> snapshot = new LinkedHashMap<InetAddress, Integer>();
+        for (Map.Entry<InetAddress, AtomicInteger> e : outstanding.entrySet()) {
+            snapshot.put(e.getKey(), e.getValue().get());
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    @Override
+    public void start(InetAddress endpoint) {
+        AtomicInteger counter = outstanding.get(endpoint);
+        if (counter == null) {
+            AtomicInteger newCounter = new AtomicInteger();
+            counter = outstanding.putIfAbsent(endpoint, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    @Override
+    public void update(InetAddress endpoint, long latencyNanos, Throwable cause) {
+        AtomicInteger counter = outstanding.get(endpoint);
+        if (counter != null) {
+            for (;;) {
+                int current = counter.get();
+                if (current <= 0 || counter.compareAndSet(current, current - 1)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isLocal(InetAddress endpoint) {
+        return routingPolicy.isLocal(endpoint);
+    }
+
+    @Override
+    public Iterator<InetAddress> activeEndpoints(AbstractStatement<?> statement) {
+        final Iterator<InetAddress> child = routingPolicy.activeEndpoints(statement);
+        ReplicaSet replicas = null;
+        ReplicaSet.Locality locality = null;
+        if (child instanceof TokenAwareRoutingPolicy.ReplicaPlan) {
+            replicas = ((TokenAwareRoutingPolicy.ReplicaPlan)child).replicas();
+            locality = ((TokenAwareRoutingPolicy.ReplicaPlan)child).locality();
+        } else if (tokenAwarePolicy != null && tokenAwarePolicy != routingPolicy) {
+            replicas = TokenAwareRoutingPolicy.replicas(statement);
+            if (replicas != null && !replicas.isEmpty()) {
+                locality = tokenAwarePolicy.locality(replicas);
+            }
+        }
+        final InetAddress[] head = new InetAddress[candidates];
+        int size = 0, sampled = 0;
+        while (size < head.length && child.hasNext()) {
+            InetAddress endpoint = child.next();
+            if (endpoint == null) {
+                continue;
+            }
+            head[size++] = endpoint;
+            if (locality != null && !locality.isLocal(replicas.indexOf(endpoint))) {
+                break;
+            }
+            sampled = size;
+        }
+        if (sampled >= 2) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(sampled);
+            int second = random.nextInt(sampled - 1);
+            if (second >= first) {
+                second++;
+            }
+            int chosen = getOutstanding(head[second]) < getOutstanding(head[first]) ? second : first;
+            InetAddress endpoint = head[chosen];
+            System.arraycopy(head, 0, head, 1, chosen);
+            head[0] = endpoint;
+        }
+        final int headSize = size;
+        return new Iterator<InetAddress>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < headSize || child.hasNext();
+            }
+
+            @Override
+            public InetAddress next() {
+                if (index < headSize) {
+                    return head[index++];
+                }
+                return child.hasNext() ? child.next() : null;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public void addEndpoint(InetAddress endpoint) {
+        routingPolicy.addEndpoint(endpoint);
+    }
+
+    @Override
+    public void removeEndpoint(InetAddress endpoint) {
+        outstanding.remove(endpoint);
+        routingPolicy.removeEndpoint(endpoint);
+    }
+}
@@ -0,0 +1,108 @@
+package cassandra.routing;
+
+import cassandra.cql.AbstractStatement;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class PreferredEndpointPolicy extends RoutingPolicy.Wrapper {
+
+    private final InetAddress endpoint;
+
+    public PreferredEndpointPolicy(InetAddress endpoint, RoutingPolicy routingPolicy) {
+        super(routingPolicy);
+        if (endpoint == null) {
+            throw new NullPointerException("endpoint");
+        }
+        this.endpoint = endpoint;
+    }
+
+    public InetAddress endpoint() {
+        return endpoint;
+    }
+
+    @Override
+    public boolean isLocal(InetAddress endpoint) {
+        return routingPolicy.isLocal(endpoint);
+    }
+
+    @Override
+    public Iterator<InetAddress> activeEndpoints(final AbstractStatement<?> statement) {
+        return new Iterator<InetAddress>() {
+
+            private Iterator<InetAddress> child;
+            private Iterator<InetAddress> skipped;
+            private InetAddress next;
+
+            @Override
+            public boolean hasNext() {
+                if (next != null) {
+                    return true;
+                }
+                if (child == null) {
+                    child = routingPolicy.activeEndpoints(statement);
+                    List<InetAddress> endpoints = null;
+                    while (child.hasNext()) {
+                        InetAddress ep = child.next();
+                        if (ep == null) {
+                            continue;
+                        }
+                        if (endpoint.equals(ep)) {
+                            next = ep;
+                            break;
+                        }
+                        if (endpoints == null) {
+                            endpoints = new ArrayList<InetAddress>(2);
+                        }
+                        endpoints.add(ep);
+                    }
+                    if (endpoints != null) {
+                        skipped = endpoints.iterator();
+                    }
+                    if (next != null) {
+                        return true;
+                    }
+                }
+                if (skipped != null && skipped.hasNext()) {
+                    next = skipped.next();
+                    return true;
+                }
+                while (child.hasNext()) {
+                    InetAddress ep = child.next();
+                    if (ep != null && !endpoint.equals(ep)) {
+                        next = ep;
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public InetAddress next() {
+                InetAddress ep = null;
+                if (hasNext()) {
+                    ep = next;
+                    next = null;
+                }
+                return ep;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public void addEndpoint(InetAddress endpoint) {
+        routingPolicy.addEndpoint(endpoint);
+    }
+
+    @Override
+    public void removeEndpoint(InetAddress endpoint) {
+        routingPolicy.removeEndpoint(endpoint);
+    }
+}
@@ -0,0 +1,117 @@
+package cassandra.routing;
+
+import cassandra.cql.AbstractStatement;
+import cassandra.metadata.Metadata;
+import cassandra.metadata.PeerMetadata;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RackAwareRoundRobinPolicy implements RoutingPolicy {
+
+    private final String datacenter;
+    private final String rack;
+    private final Map<String, Integer> groups;
+    private final AtomicInteger counter;
+    private volatile EndpointSnapshot snapshot;
+    private Metadata metadata;
+
+    public RackAwareRoundRobinPolicy(String datacenter, String rack) {
+        if (datacenter == null) {
+            throw new NullPointerException("datacenter");
+        }
+        if (datacenter.isEmpty()) {
+            throw new IllegalArgumentException("empty datacenter");
+        }
+        if (rack == null) {
+            throw new NullPointerException("rack");
+        }
+        if (rack.isEmpty()) {
+            throw new IllegalArgumentException("empty rack");
+        }
+        this.datacenter = datacenter;
+        this.rack = rack;
+        groups = new HashMap<String, Integer>();
+        counter = new AtomicInteger(new Random().nextInt(997));
+        snapshot = EndpointSnapshot.EMPTY;
+    }
+
+    public String datacenter() {
+        return datacenter;
+    }
+
+    public String rack() {
+        return rack;
+    }
+
+    public long version() {
+        return snapshot.version();
+    }
+
+    public void init(Metadata metadata) {
+        this.metadata = metadata;
+    }
+
+    @Override
+    public boolean isLocal(InetAddress endpoint) {
+        if (metadata == null) {
+            return false;
+        }
+        PeerMetadata peer = metadata.getPeer(endpoint);
+        return peer != null && peer.hasDatacenter() && peer.getDatacenter().equals(datacenter);
+    }
+
+    public boolean isLocalRack(InetAddress endpoint) {
+        if (metadata == null) {
+            return false;
+        }
+        PeerMetadata peer = metadata.getPeer(endpoint);
+        return peer != null && peer.hasDatacenter() && peer.getDatacenter().equals(datacenter) && peer.hasRack() && peer.getRack().equals(rack);
+    }
+
+    @Override
+    public Iterator<InetAddress> activeEndpoints(AbstractStatement<?> statement) {
+        if (metadata == null) {
+            metadata = statement.getSession().metadata();
+            for (PeerMetadata peer : metadata.getPeers()) {
+                add(peer);
+            }
+        }
+        return snapshot.cursor(counter.getAndIncrement());
+    }
+
+    @Override
+    public void addEndpoint(InetAddress endpoint) {
+        if (metadata != null) {
+            add(metadata.getPeer(endpoint));
+        }
+    }
+
+    @Override
+    public synchronized void removeEndpoint(InetAddress endpoint) {
+        snapshot = snapshot.remove(endpoint);
+    }
+
+    private synchronized void add(PeerMetadata peer) {
+        if (peer == null || !peer.hasDatacenter()) {
+            return;
+        }
+        String dc = peer.getDatacenter();
+        int group;
+        if (dc.equals(datacenter)) {
+            group = peer.hasRack() && peer.getRack().equals(rack) ? 0 : 1;
+        } else {
+            Integer remote = groups.get(dc);
+            if (remote == null) {
+                remote = groups.size() + 2;
+                groups.put(dc, remote);
+            }
+            group = remote;
+        }
+        snapshot = snapshot.add(group, peer.getAddress());
+    }
+}
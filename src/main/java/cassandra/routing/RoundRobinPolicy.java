@@ -3,26 +3,34 @@ package cassandra.routing;
 import cassandra.cql.AbstractStatement;
 
 import java.net.InetAddress;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class RoundRobinPolicy implements RoutingPolicy {
 
-    private final List<InetAddress> activeEndpoints;
-    private volatile int counter;
+    private final AtomicInteger counter;
+    private volatile EndpointSnapshot snapshot;
 
     public RoundRobinPolicy() {
-        this(new CopyOnWriteArrayList<InetAddress>());
+        this(Collections.<InetAddress>emptyList());
     }
 
     public RoundRobinPolicy(List<InetAddress> activeEndpoints) {
         if (activeEndpoints == null) {
             throw new NullPointerException("activeEndpoints");
         }
-        this.activeEndpoints = activeEndpoints;
-        counter = new Random().nextInt(997);
+        counter = new AtomicInteger(new Random().nextInt(997));
+        snapshot = EndpointSnapshot.EMPTY;
+        for (InetAddress endpoint : activeEndpoints) {
+            addEndpoint(endpoint);
+        }
+    }
+
+    public long version() {
+        return snapshot.version();
     }
 
     @Override
@@ -32,45 +40,19 @@ public class RoundRobinPolicy implements RoutingPolicy {
 
     @Override
     public Iterator<InetAddress> activeEndpoints(AbstractStatement<?> statement) {
-        return new Iterator<InetAddress>() {
-
-            private int start = counter++;
-            private int remaining = activeEndpoints.size();
-
-            @Override
-            public boolean hasNext() {
-                return remaining > 0;
-            }
-
-            @Override
-            public InetAddress next() {
-                if (!hasNext()) {
-                    return null;
-                }
-                remaining--;
-                int index = start++ % activeEndpoints.size();
-                if (index < 0) {
-                    index += activeEndpoints.size();
-                }
-                return activeEndpoints.get(index);
-            }
-
-            @Override
-            public void remove() {
-                throw new UnsupportedOperationException();
-            }
-        };
+        return snapshot.cursor(counter.getAndIncrement());
     }
 
     @Override
-    public void addEndpoint(InetAddress endpoint) {
-        if (!activeEndpoints.contains(endpoint)) {
-            activeEndpoints.add(endpoint);
+    public synchronized void addEndpoint(InetAddress endpoint) {
+        if (endpoint == null) {
+            throw new NullPointerException("endpoint");
         }
+        snapshot = snapshot.add(0, endpoint);
     }
 
     @Override
-    public void removeEndpoint(InetAddress endpoint) {
-        activeEndpoints.remove(endpoint);
+    public synchronized void removeEndpoint(InetAddress endpoint) {
+        snapshot = snapshot.remove(endpoint);
     }
 }
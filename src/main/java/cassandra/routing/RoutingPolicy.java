@@ -25,5 +25,9 @@ public interface RoutingPolicy {
             }
             this.routingPolicy = routingPolicy;
         }
+
+        public RoutingPolicy routingPolicy() {
+            return routingPolicy;
+        }
     }
 }
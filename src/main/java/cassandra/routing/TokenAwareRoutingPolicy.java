@@ -1,19 +1,38 @@
 package cassandra.routing;
 
 import cassandra.cql.AbstractStatement;
-import cassandra.cql.RoutingKey;
 import cassandra.metadata.Metadata;
 import cassandra.metadata.Partitioner;
-import cassandra.metadata.ReplicationStrategy;
+import cassandra.metadata.ReplicaSet;
 
 import java.net.InetAddress;
 import java.util.Iterator;
-import java.util.List;
 
 public class TokenAwareRoutingPolicy extends RoutingPolicy.Wrapper {
 
+    private final boolean precomputed;
+    private final String datacenter;
+    private final String rack;
+
     public TokenAwareRoutingPolicy(RoutingPolicy routingPolicy) {
         super(routingPolicy);
+        RoutingPolicy policy = routingPolicy;
+        while (policy instanceof RoutingPolicy.Wrapper) {
+            policy = ((RoutingPolicy.Wrapper)policy).routingPolicy();
+        }
+        if (policy instanceof RackAwareRoundRobinPolicy) {
+            precomputed = true;
+            datacenter = ((RackAwareRoundRobinPolicy)policy).datacenter();
+            rack = ((RackAwareRoundRobinPolicy)policy).rack();
+        } else if (policy instanceof DCAwareRoundRobinPolicy) {
+            precomputed = true;
+            datacenter = ((DCAwareRoundRobinPolicy)policy).datacenter();
+            rack = null;
+        } else {
+            precomputed = policy instanceof RoundRobinPolicy;
+            datacenter = null;
+            rack = null;
+        }
     }
 
     @Override
@@ -22,64 +41,45 @@ public class TokenAwareRoutingPolicy extends RoutingPolicy.Wrapper {
     }
 
     @Override
-    public Iterator<InetAddress> activeEndpoints(final AbstractStatement<?> statement) {
-        String keyspace = statement.getKeyspace();
-        RoutingKey routingKey = statement.getRoutingKey();
-        if (keyspace != null && routingKey != null) {
-            Metadata metadata = statement.getSession().metadata();
-            Partitioner partitioner = metadata.getPartitioner();
-            Partitioner.Token token = partitioner.getToken(routingKey.asByteBuffer());
-            ReplicationStrategy replicationStrategy = metadata.getKeyspace(keyspace).getReplicationStrategy();
-            final List<InetAddress> replicas = replicationStrategy.calculateNaturalEndpoints(token);
-            if (!replicas.isEmpty()) {
-                return new Iterator<InetAddress>() {
-
-                    private final Iterator<InetAddress> parent = replicas.iterator();
-                    private Iterator<InetAddress> child;
-                    private InetAddress next;
-
-                    @Override
-                    public boolean hasNext() {
-                        if (parent.hasNext()) {
-                            InetAddress endpoint = parent.next();
-                            if (isLocal(endpoint)) {
-                                next = endpoint;
-                                return true;
-                            }
-                        }
-                        if (child == null) {
-                            child = routingPolicy.activeEndpoints(statement);
-                        }
-                        while (child.hasNext()) {
-                            InetAddress endpoint = child.next();
-                            if (!replicas.contains(endpoint) && !isLocal(endpoint)) {
-                                next = endpoint;
-                                return true;
-                            }
-                        }
-                        return false;
-                    }
-
-                    @Override
-                    public InetAddress next() {
-                        InetAddress endpoint = null;
-                        if (next != null) {
-                            endpoint = next;
-                            next = null;
-                        }
-                        return endpoint;
-                    }
-
-                    @Override
-                    public void remove() {
-                        throw new UnsupportedOperationException();
-                    }
-                };
-            }
+    public Iterator<InetAddress> activeEndpoints(AbstractStatement<?> statement) {
+        ReplicaSet replicas = replicas(statement);
+        if (replicas != null && !replicas.isEmpty()) {
+            return new ReplicaPlan(statement, replicas, locality(replicas));
         }
         return routingPolicy.activeEndpoints(statement);
     }
 
+    ReplicaSet.Locality locality(ReplicaSet replicas) {
+        if (precomputed) {
+            return replicas.locality(datacenter, rack);
+        }
+        long local = 0;
+        for (int i = 0; i < replicas.size() && i < Long.SIZE; i++) {
+            if (isLocal(replicas.get(i))) {
+                local |= 1L << i;
+            }
+        }
+        return replicas.locality(local, 0);
+    }
+
+    static ReplicaSet replicas(AbstractStatement<?> statement) {
+        String keyspace = statement.getKeyspace();
+        if (keyspace == null) {
+            return null;
+        }
+        Metadata metadata = statement.getSession().metadata();
+        Partitioner partitioner = metadata.getPartitioner();
+        if (partitioner instanceof Partitioner.Murmur3Partitioner) {
+            long token = statement.getRoutingToken((Partitioner.Murmur3Partitioner)partitioner);
+            return token != Long.MIN_VALUE ? metadata.getReplicaSet(keyspace, token) : null;
+        }
+        if (partitioner == null) {
+            return null;
+        }
+        Partitioner.Token token = statement.getToken(partitioner);
+        return token != null ? metadata.getReplicaSet(keyspace, token) : null;
+    }
+
     @Override
     public void addEndpoint(InetAddress endpoint) {
         routingPolicy.addEndpoint(endpoint);
@@ -89,4 +89,69 @@ public class TokenAwareRoutingPolicy extends RoutingPolicy.Wrapper {
     public void removeEndpoint(InetAddress endpoint) {
         routingPolicy.removeEndpoint(endpoint);
     }
+
+    final class ReplicaPlan implements Iterator<InetAddress> {
+
+        private final AbstractStatement<?> statement;
+        private final ReplicaSet replicas;
+        private final ReplicaSet.Locality locality;
+        private int position;
+        private Iterator<InetAddress> child;
+        private InetAddress next;
+
+        private ReplicaPlan(AbstractStatement<?> statement, ReplicaSet replicas, ReplicaSet.Locality locality) {
+            this.statement = statement;
+            this.replicas = replicas;
+            this.locality = locality;
+        }
+
+        ReplicaSet replicas() {
+            return replicas;
+        }
+
+        ReplicaSet.Locality locality() {
+            return locality;
+        }
+
+        private boolean isReplica(InetAddress endpoint) {
+            return locality.isLocal(replicas.indexOf(endpoint));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (position < locality.size()) {
+                next = replicas.get(locality.indexAt(position++));
+                return true;
+            }
+            if (child == null) {
+                child = routingPolicy.activeEndpoints(statement);
+            }
+            while (child.hasNext()) {
+                InetAddress endpoint = child.next();
+                if (endpoint != null && !isReplica(endpoint)) {
+                    next = endpoint;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public InetAddress next() {
+            InetAddress endpoint = null;
+            if (hasNext()) {
+                endpoint = next;
+                next = null;
+            }
+            return endpoint;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
@@ -0,0 +1,33 @@
+package cassandra.speculative;
+
+import java.net.InetAddress;
+
+public class ConstantSpeculativeExecutionPolicy implements SpeculativeExecutionPolicy {
+
+    private final long delayMillis;
+    private final int maxExecutions;
+
+    public ConstantSpeculativeExecutionPolicy(long delayMillis, int maxExecutions) {
+        if (delayMillis < 0) {
+            throw new IllegalArgumentException(String.format("delayMillis: %d (expected: >= 0)", delayMillis));
+        }
+        if (maxExecutions <= 0) {
+            throw new IllegalArgumentException(String.format("maxExecutions: %d (expected: > 0)", maxExecutions));
+        }
+        this.delayMillis = delayMillis;
+        this.maxExecutions = maxExecutions;
+    }
+
+    public long delayMillis() {
+        return delayMillis;
+    }
+
+    public int maxExecutions() {
+        return maxExecutions;
+    }
+
+    @Override
+    public long nextExecution(InetAddress endpoint, int executions) {
+        return executions <= maxExecutions ? delayMillis : -1;
+    }
+}
@@ -0,0 +1,13 @@
+package cassandra.speculative;
+
+import java.net.InetAddress;
+
+public class NoSpeculativeExecutionPolicy implements SpeculativeExecutionPolicy {
+
+    public static final NoSpeculativeExecutionPolicy INSTANCE = new NoSpeculativeExecutionPolicy();
+
+    @Override
+    public long nextExecution(InetAddress endpoint, int executions) {
+        return -1;
+    }
+}
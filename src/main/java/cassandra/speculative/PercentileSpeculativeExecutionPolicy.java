@@ -0,0 +1,103 @@
+package cassandra.speculative;
+
+import cassandra.routing.LatencyTracker;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+
+import java.net.InetAddress;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.internal.PlatformDependent.newConcurrentHashMap;
+
+public class PercentileSpeculativeExecutionPolicy implements SpeculativeExecutionPolicy, LatencyTracker {
+
+    private static final long REFRESH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final double percentile;
+    private final int maxExecutions;
+    private final int minSamples;
+    private final ConcurrentMap<InetAddress, HostLatency> latencies;
+
+    public PercentileSpeculativeExecutionPolicy(double percentile, int maxExecutions) {
+        this(percentile, maxExecutions, 100);
+    }
+
+    public PercentileSpeculativeExecutionPolicy(double percentile, int maxExecutions, int minSamples) {
+        if (percentile <= 0.0 || percentile >= 100.0) {
+            throw new IllegalArgumentException(String.format("percentile: %f (expected: > 0.0 and < 100.0)", percentile));
+        }
+        if (maxExecutions <= 0) {
+            throw new IllegalArgumentException(String.format("maxExecutions: %d (expected: > 0)", maxExecutions));
+        }
+        if (minSamples < 0) {
+            throw new IllegalArgumentException(String.format("minSamples: %d (expected: >= 0)", minSamples));
+        }
+        this.percentile = percentile;
+        this.maxExecutions = maxExecutions;
+        this.minSamples = minSamples;
+        latencies = newConcurrentHashMap();
+    }
+
+    public double percentile() {
+        return percentile;
+    }
+
+    public int maxExecutions() {
+        return maxExecutions;
+    }
+
+    public long getDelay(InetAddress endpoint, TimeUnit unit) {
+        HostLatency latency = latencies.get(endpoint);
+        if (latency == null) {
+            return -1;
+        }
+        long delay = latency.delayMicros(percentile, minSamples);
+        return delay < 0 ? -1 : unit.convert(delay, TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public long nextExecution(InetAddress endpoint, int executions) {
+        if (executions > maxExecutions) {
+            return -1;
+        }
+        long delay = getDelay(endpoint, TimeUnit.MICROSECONDS);
+        return delay < 0 ? -1 : Math.max(1, TimeUnit.MICROSECONDS.toMillis(delay));
+    }
+
+    @Override
+    public void start(InetAddress endpoint) {
+    }
+
+    @Override
+    public void update(InetAddress endpoint, long latencyNanos, Throwable cause) {
+        if (endpoint == null || cause != null) {
+            return;
+        }
+        HostLatency latency = latencies.get(endpoint);
+        if (latency == null) {
+            HostLatency newLatency = new HostLatency();
+            latency = latencies.putIfAbsent(endpoint, newLatency);
+            if (latency == null) {
+                latency = newLatency;
+            }
+        }
+        latency.histogram.update(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+    }
+
+    private static class HostLatency {
+
+        private final Histogram histogram = new Histogram(new ExponentiallyDecayingReservoir());
+        private volatile long delayMicros = -1;
+        private volatile long refreshedAt = System.nanoTime() - REFRESH_INTERVAL_NANOS;
+
+        private long delayMicros(double percentile, int minSamples) {
+            long now = System.nanoTime();
+            if (now - refreshedAt >= REFRESH_INTERVAL_NANOS) {
+                refreshedAt = now;
+                delayMicros = histogram.getCount() < minSamples ? -1 : (long)histogram.getSnapshot().getValue(percentile / 100.0);
+            }
+            return delayMicros;
+        }
+    }
+}
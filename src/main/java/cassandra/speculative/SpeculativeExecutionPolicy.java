@@ -0,0 +1,10 @@
+package cassandra.speculative;
+
+import java.net.InetAddress;
+
+public interface SpeculativeExecutionPolicy {
+
+    public static final SpeculativeExecutionPolicy DEFAULT = NoSpeculativeExecutionPolicy.INSTANCE;
+
+    long nextExecution(InetAddress endpoint, int executions);
+}
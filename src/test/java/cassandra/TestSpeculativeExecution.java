@@ -0,0 +1,127 @@
+package cassandra;
+
+import cassandra.cql.AbstractStatement;
+import cassandra.cql.Statement;
+import cassandra.protocol.CassandraMessage;
+import cassandra.retry.RetryContext;
+import cassandra.retry.RetryPolicy;
+import cassandra.routing.RoundRobinPolicy;
+import cassandra.routing.RoutingPolicy;
+import cassandra.speculative.SpeculativeExecutionPolicy;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+public class TestSpeculativeExecution {
+
+    private CassandraSession session;
+    private CassandraCluster.Client cluster;
+    private AbstractStatement<?> statement;
+    private RoutingPolicy routingPolicy;
+    private Capture<CassandraSession.ResultFuture> sent;
+
+    @Before
+    public void setUp() throws Exception {
+        routingPolicy = new RoundRobinPolicy();
+        for (int i = 1; i <= 3; i++) {
+            routingPolicy.addEndpoint(host(i));
+        }
+        session = createNiceMock(CassandraSession.class);
+        sent = new Capture<CassandraSession.ResultFuture>(CaptureType.ALL);
+        expect(session.execute(anyObject(CassandraMessage.Request.class), capture(sent))).andReturn(null).anyTimes();
+        statement = createNiceMock(Statement.class);
+        expect(statement.getRoutingPolicy()).andReturn(routingPolicy).anyTimes();
+        expect(statement.getRetryPolicy()).andReturn(RetryPolicy.DEFAULT).anyTimes();
+        cluster = createMock(CassandraCluster.Client.class);
+        cluster.creditSpeculativeExecution();
+        expectLastCall().anyTimes();
+    }
+
+    @Test
+    public void firstResponseWins() throws Exception {
+        expect(cluster.acquireSpeculativeExecution()).andReturn(true).once();
+        replay(session, statement, cluster);
+        CassandraSession.ResultFuture first = first();
+        CassandraSession.ResultFuture future = speculate(first, 10);
+        CassandraSession.ResultFuture speculative = awaitSent();
+        assertFalse(first.context().getCurrentEndpoint().equals(speculative.context().getCurrentEndpoint()));
+
+        CassandraMessage.Result winner = new CassandraMessage.Result.Void();
+        speculative.promise().setSuccess(winner);
+        assertSame(winner, future.get(1000));
+        assertTrue(first.promise().await(1000));
+        assertTrue(first.promise().cause() instanceof CancellationException);
+        assertFalse(first.promise().trySuccess(new CassandraMessage.Result.Void()));
+        assertSame(winner, future.get(1000));
+        verify(cluster);
+    }
+
+    @Test
+    public void allFailedReportsLastCause() throws Exception {
+        expect(cluster.acquireSpeculativeExecution()).andReturn(true).once();
+        replay(session, statement, cluster);
+        CassandraSession.ResultFuture first = first();
+        CassandraSession.ResultFuture future = speculate(first, 10);
+        CassandraSession.ResultFuture speculative = awaitSent();
+
+        first.promise().setFailure(new IllegalStateException("first"));
+        Thread.sleep(50);
+        assertFalse(future.promise().isDone());
+        RuntimeException last = new IllegalStateException("speculative");
+        speculative.promise().setFailure(last);
+        assertTrue(future.promise().await(1000));
+        assertSame(last, future.promise().cause());
+        verify(cluster);
+    }
+
+    @Test
+    public void exhaustedBudgetSendsNothing() throws Exception {
+        expect(cluster.acquireSpeculativeExecution()).andReturn(false).once();
+        replay(session, statement, cluster);
+        CassandraSession.ResultFuture first = first();
+        CassandraSession.ResultFuture future = speculate(first, 10);
+        Thread.sleep(100);
+        assertFalse(sent.hasCaptured());
+        assertFalse(future.promise().isDone());
+
+        RuntimeException cause = new IllegalStateException("first");
+        first.promise().setFailure(cause);
+        assertTrue(future.promise().await(1000));
+        assertSame(cause, future.promise().cause());
+        verify(cluster);
+    }
+
+    private CassandraSession.ResultFuture first() throws Exception {
+        return session.new ResultFuture(session, new RetryContext(RetryPolicy.DEFAULT, Arrays.asList(host(1)).iterator()));
+    }
+
+    private CassandraSession.ResultFuture speculate(CassandraSession.ResultFuture first, final long delay) {
+        SpeculativeExecutionPolicy policy = new SpeculativeExecutionPolicy() {
+            @Override
+            public long nextExecution(InetAddress endpoint, int executions) {
+                return executions < 2 ? delay : -1;
+            }
+        };
+        return new SpeculativeExecution(session, cluster, statement, CassandraMessage.QueryParameters.DEFAULT, policy, first).execute();
+    }
+
+    private CassandraSession.ResultFuture awaitSent() throws Exception {
+        for (int i = 0; i < 100 && !sent.hasCaptured(); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, sent.getValues().size());
+        return sent.getValue();
+    }
+
+    private static InetAddress host(int i) throws Exception {
+        return InetAddress.getByAddress(new byte[] {10, 0, 0, (byte)i});
+    }
+}
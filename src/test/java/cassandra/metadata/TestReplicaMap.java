@@ -0,0 +1,205 @@
+package cassandra.metadata;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestReplicaMap {
+
+    private static final String MURMUR3 = "org.apache.cassandra.dht.Murmur3Partitioner";
+    private static final String RANDOM = "org.apache.cassandra.dht.RandomPartitioner";
+    private static final String SIMPLE = "org.apache.cassandra.locator.SimpleStrategy";
+    private static final String NTS = "org.apache.cassandra.locator.NetworkTopologyStrategy";
+
+    @Test
+    public void murmur3SimpleStrategy() throws Exception {
+        Metadata metadata = newMetadata(MURMUR3, 16);
+        ReplicationStrategy strategy = addKeyspace(metadata, SIMPLE, options("replication_factor", "3"));
+        assertMatches(strategy, ring(metadata, Partitioner.Murmur3Partitioner.MINIMUM), 3);
+    }
+
+    @Test
+    public void murmur3NetworkTopologyStrategy() throws Exception {
+        Metadata metadata = newMetadata(MURMUR3, 16);
+        ReplicationStrategy strategy = addKeyspace(metadata, NTS, options("dc1", "2", "dc2", "3"));
+        assertMatches(strategy, ring(metadata, Partitioner.Murmur3Partitioner.MINIMUM), 5);
+    }
+
+    @Test
+    public void randomSimpleStrategy() throws Exception {
+        Metadata metadata = newMetadata(RANDOM, 16);
+        ReplicationStrategy strategy = addKeyspace(metadata, SIMPLE, options("replication_factor", "3"));
+        assertMatches(strategy, ring(metadata, Partitioner.RandomPartitioner.MINIMUM), 3);
+    }
+
+    @Test
+    public void randomNetworkTopologyStrategy() throws Exception {
+        Metadata metadata = newMetadata(RANDOM, 16);
+        ReplicationStrategy strategy = addKeyspace(metadata, NTS, options("dc1", "2", "dc2", "3"));
+        assertMatches(strategy, ring(metadata, Partitioner.RandomPartitioner.MINIMUM), 5);
+    }
+
+    @Test
+    public void ringIteratorWrapsAround() throws Exception {
+        for (String partitioner : new String[] {MURMUR3, RANDOM}) {
+            Metadata metadata = newMetadata(partitioner, 4);
+            Partitioner.Token minimum = partitioner.equals(MURMUR3) ? Partitioner.Murmur3Partitioner.MINIMUM : Partitioner.RandomPartitioner.MINIMUM;
+            List<Partitioner.Token> ring = ring(metadata, minimum);
+            assertEquals(metadata.getRingSize(), ring.size());
+            Partitioner.Token last = ring.get(ring.size() - 1);
+            Iterator<Map.Entry<Partitioner.Token, InetAddress>> iterator = metadata.getRingIterator(next(last));
+            List<Partitioner.Token> wrapped = new ArrayList<Partitioner.Token>();
+            while (iterator.hasNext()) {
+                wrapped.add(iterator.next().getKey());
+            }
+            assertEquals(ring, wrapped);
+            iterator = metadata.getRingIterator(last);
+            assertEquals(last, iterator.next().getKey());
+            assertEquals(ring.get(0), iterator.next().getKey());
+        }
+    }
+
+    @Test
+    public void localityOrdersLocalRackFirst() throws Exception {
+        Metadata metadata = newMetadata(MURMUR3, 16);
+        ReplicationStrategy strategy = addKeyspace(metadata, NTS, options("dc1", "2", "dc2", "3"));
+        ReplicaMap replicaMap = new ReplicaMap(0, ring(metadata, Partitioner.Murmur3Partitioner.MINIMUM), strategy);
+        for (int i = 0; i < 64; i++) {
+            ReplicaSet replicas = replicaMap.getReplicaSet((long)i << 58);
+            String rack = replicas.getRack(replicas.size() - 1);
+            ReplicaSet.Locality locality = replicas.locality("dc2", rack);
+            assertSame(locality, replicas.locality("dc2", rack));
+            List<InetAddress> expected = new ArrayList<InetAddress>();
+            for (InetAddress replica : replicas.asList()) {
+                PeerMetadata peer = metadata.getPeer(replica);
+                if (peer.getDatacenter().equals("dc2") && peer.getRack().equals(rack)) {
+                    expected.add(replica);
+                }
+            }
+            for (InetAddress replica : replicas.asList()) {
+                PeerMetadata peer = metadata.getPeer(replica);
+                if (peer.getDatacenter().equals("dc2") && !peer.getRack().equals(rack)) {
+                    expected.add(replica);
+                }
+            }
+            List<InetAddress> actual = new ArrayList<InetAddress>();
+            for (int position = 0; position < locality.size(); position++) {
+                actual.add(replicas.get(locality.indexAt(position)));
+            }
+            assertEquals(expected, actual);
+            for (int index = 0; index < replicas.size(); index++) {
+                assertEquals(index, replicas.indexOf(replicas.get(index)));
+                assertEquals(metadata.getPeer(replicas.get(index)).getDatacenter().equals("dc2"), locality.isLocal(index));
+            }
+            assertEquals(-1, replicas.indexOf(InetAddress.getByAddress(new byte[] {10, 0, 1, 1})));
+            assertTrue(replicas.locality(null, null).size() == replicas.size());
+        }
+    }
+
+    private static void assertMatches(ReplicationStrategy strategy, List<Partitioner.Token> ring, int replicationFactor) {
+        ReplicaMap replicaMap = new ReplicaMap(0, ring, strategy);
+        assertEquals(ring.size(), replicaMap.size());
+        List<Partitioner.Token> probes = new ArrayList<Partitioner.Token>();
+        for (Partitioner.Token token : ring) {
+            probes.add(previous(token));
+            probes.add(token);
+            probes.add(next(token));
+        }
+        probes.add(next(ring.get(ring.size() - 1)));
+        if (ring.get(0) instanceof Partitioner.Murmur3Partitioner.LongToken) {
+            probes.add(new Partitioner.Murmur3Partitioner.LongToken(Long.MIN_VALUE));
+            probes.add(new Partitioner.Murmur3Partitioner.LongToken(Long.MAX_VALUE));
+        } else {
+            probes.add(new Partitioner.RandomPartitioner.BigIntegerToken(BigInteger.ZERO));
+            probes.add(new Partitioner.RandomPartitioner.BigIntegerToken(BigInteger.ONE.shiftLeft(127)));
+        }
+        for (Partitioner.Token token : probes) {
+            List<InetAddress> expected = strategy.calculateNaturalEndpoints(token);
+            assertEquals(replicationFactor, expected.size());
+            assertEquals(token.toString(), expected, replicaMap.getReplicas(token));
+            if (token instanceof Partitioner.Murmur3Partitioner.LongToken) {
+                assertEquals(token.toString(), expected, replicaMap.getReplicas(((Partitioner.Murmur3Partitioner.LongToken)token).value));
+            }
+        }
+    }
+
+    private static Metadata newMetadata(String partitioner, int vnodes) throws Exception {
+        Random random = new Random(vnodes);
+        Metadata metadata = new Metadata() {
+        };
+        metadata.setPartitioner(partitioner);
+        int host = 0;
+        for (String datacenter : new String[] {"dc1", "dc2"}) {
+            for (String rack : new String[] {"rack1", "rack2", "rack3"}) {
+                for (int i = 0; i < 2; i++) {
+                    Set<String> tokens = new HashSet<String>();
+                    while (tokens.size() < vnodes) {
+                        if (partitioner.equals(MURMUR3)) {
+                            tokens.add(Long.toString(random.nextLong()));
+                        } else {
+                            tokens.add(new BigInteger(127, random).toString());
+                        }
+                    }
+                    metadata.addPeer(PeerMetadata.newBuilder()
+                            .setMetadata(metadata)
+                            .setAddress(InetAddress.getByAddress(new byte[] {10, 0, 0, (byte)++host}))
+                            .setDatacenter(datacenter)
+                            .setRack(rack)
+                            .setTokens(tokens)
+                            .build());
+                }
+            }
+        }
+        return metadata;
+    }
+
+    private static ReplicationStrategy addKeyspace(Metadata metadata, String strategyClass, Map<String, String> options) {
+        KeyspaceMetadata keyspace = KeyspaceMetadata.newBuilder()
+                .setMetadata(metadata)
+                .setName("ks")
+                .setStrategyClass(strategyClass)
+                .setStrategyOptions(options)
+                .build();
+        metadata.addKeyspace(keyspace);
+        return keyspace.getReplicationStrategy();
+    }
+
+    private static List<Partitioner.Token> ring(Metadata metadata, Partitioner.Token minimum) {
+        List<Partitioner.Token> ring = new ArrayList<Partitioner.Token>();
+        Iterator<Map.Entry<Partitioner.Token, InetAddress>> iterator = metadata.getRingIterator(minimum);
+        while (iterator.hasNext()) {
+            ring.add(iterator.next().getKey());
+        }
+        assertFalse(ring.isEmpty());
+        return ring;
+    }
+
+    private static Map<String, String> options(String... keyValues) {
+        Map<String, String> options = new LinkedHashMap<String, String>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            options.put(keyValues[i], keyValues[i + 1]);
+        }
+        return options;
+    }
+
+    private static Partitioner.Token previous(Partitioner.Token token) {
+        if (token instanceof Partitioner.Murmur3Partitioner.LongToken) {
+            return new Partitioner.Murmur3Partitioner.LongToken(((Partitioner.Murmur3Partitioner.LongToken)token).value - 1);
+        }
+        return new Partitioner.RandomPartitioner.BigIntegerToken(((Partitioner.RandomPartitioner.BigIntegerToken)token).value.subtract(BigInteger.ONE));
+    }
+
+    private static Partitioner.Token next(Partitioner.Token token) {
+        if (token instanceof Partitioner.Murmur3Partitioner.LongToken) {
+            return new Partitioner.Murmur3Partitioner.LongToken(((Partitioner.Murmur3Partitioner.LongToken)token).value + 1);
+        }
+        return new Partitioner.RandomPartitioner.BigIntegerToken(((Partitioner.RandomPartitioner.BigIntegerToken)token).value.add(BigInteger.ONE));
+    }
+}
@@ -0,0 +1,83 @@
+package cassandra.metadata;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class TestTokenRing {
+
+    @Test
+    public void ceilingWrapsAround() throws Exception {
+        Map<InetAddress, long[]> peerTokens = new LinkedHashMap<InetAddress, long[]>();
+        peerTokens.put(host(1), new long[] {-100, 200});
+        peerTokens.put(host(2), new long[] {0, 300});
+        TokenRing ring = TokenRing.build(peerTokens);
+        assertEquals(4, ring.size());
+        assertEquals(host(1), ring.hostAt(ring.ceilingIndex(Long.MIN_VALUE)));
+        assertEquals(host(2), ring.hostAt(ring.ceilingIndex(-99)));
+        assertEquals(host(2), ring.hostAt(ring.ceilingIndex(0)));
+        assertEquals(host(1), ring.hostAt(ring.ceilingIndex(301)));
+        assertEquals(0, ring.ceilingIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void iteratorVisitsEveryTokenOnce() throws Exception {
+        Map<InetAddress, long[]> peerTokens = new LinkedHashMap<InetAddress, long[]>();
+        peerTokens.put(host(1), new long[] {-100, 200});
+        peerTokens.put(host(2), new long[] {0, 300});
+        TokenRing ring = TokenRing.build(peerTokens);
+        Iterator<Map.Entry<Partitioner.Token, InetAddress>> iterator = ring.iterator(250);
+        List<Partitioner.Token> tokens = new ArrayList<Partitioner.Token>();
+        while (iterator.hasNext()) {
+            tokens.add(iterator.next().getKey());
+        }
+        assertEquals(Arrays.<Partitioner.Token>asList(token(300), token(-100), token(0), token(200)), tokens);
+        assertFalse(ring.iterator(301).next().getKey().equals(token(300)));
+    }
+
+    @Test
+    public void duplicateTokenOwnedByLastAddedHost() throws Exception {
+        for (int round = 0; round < 100; round++) {
+            Map<InetAddress, long[]> peerTokens = new LinkedHashMap<InetAddress, long[]>();
+            Random random = new Random(round);
+            for (int i = 1; i <= 8; i++) {
+                long[] tokens = new long[32];
+                for (int j = 0; j < tokens.length; j++) {
+                    tokens[j] = random.nextInt(16);
+                }
+                peerTokens.put(host(i), tokens);
+            }
+            peerTokens.put(host(9), new long[] {7});
+            TokenRing ring = TokenRing.build(peerTokens);
+            assertEquals(16, ring.size());
+            assertEquals(host(9), ring.hostAt(ring.ceilingIndex(7)));
+            for (int i = 0; i < ring.size(); i++) {
+                assertEquals(lastOwner(peerTokens, ring.tokenAt(i)), ring.hostAt(i));
+            }
+        }
+    }
+
+    private static InetAddress lastOwner(Map<InetAddress, long[]> peerTokens, long token) {
+        InetAddress owner = null;
+        for (Map.Entry<InetAddress, long[]> entry : peerTokens.entrySet()) {
+            for (long t : entry.getValue()) {
+                if (t == token) {
+                    owner = entry.getKey();
+                }
+            }
+        }
+        return owner;
+    }
+
+    private static InetAddress host(int i) throws Exception {
+        return InetAddress.getByAddress(new byte[] {10, 0, 0, (byte)i});
+    }
+
+    private static Partitioner.Token token(long value) {
+        return new Partitioner.Murmur3Partitioner.LongToken(value);
+    }
+}
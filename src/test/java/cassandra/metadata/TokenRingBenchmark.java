@@ -0,0 +1,130 @@
+package cassandra.metadata;
+
+import java.net.InetAddress;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+public class TokenRingBenchmark {
+
+    private static final int NODES = 300;
+    private static final int VNODES = 256;
+    private static final int REPLICAS = 3;
+    private static final int LOOKUPS = 1000000;
+    private static final int WALKS = 100000;
+    private static final int ROUNDS = 5;
+
+    private static long blackhole;
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(0);
+        Map<InetAddress, long[]> peerTokens = new LinkedHashMap<InetAddress, long[]>();
+        for (int i = 0; i < NODES; i++) {
+            long[] tokens = new long[VNODES];
+            for (int j = 0; j < VNODES; j++) {
+                tokens[j] = random.nextLong();
+            }
+            peerTokens.put(InetAddress.getByAddress(new byte[] {10, 0, (byte)(i >> 8), (byte)i}), tokens);
+        }
+        long[] probes = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            probes[i] = random.nextLong();
+        }
+        System.out.printf("ring: %d nodes x %d vnodes = %d tokens%n", NODES, VNODES, NODES * VNODES);
+        for (int round = 1; round <= ROUNDS; round++) {
+            System.out.printf("round %d%n", round);
+            long start = System.nanoTime();
+            ConcurrentSkipListMap<Partitioner.Token, InetAddress> skipList = buildSkipList(peerTokens);
+            report("skip-list build", start, 1);
+            start = System.nanoTime();
+            TokenRing ring = TokenRing.build(peerTokens);
+            report("token-ring build", start, 1);
+
+            start = System.nanoTime();
+            for (long probe : probes) {
+                Partitioner.Token token = skipList.ceilingKey(new Partitioner.Murmur3Partitioner.LongToken(probe));
+                blackhole += (token != null ? skipList.get(token) : skipList.firstEntry().getValue()).hashCode();
+            }
+            report("skip-list ceiling", start, LOOKUPS);
+            start = System.nanoTime();
+            for (long probe : probes) {
+                blackhole += ring.hostIndexAt(ring.ceilingIndex(probe));
+            }
+            report("token-ring ceiling", start, LOOKUPS);
+
+            start = System.nanoTime();
+            for (int i = 0; i < WALKS; i++) {
+                blackhole += walk(skipListIterator(skipList, new Partitioner.Murmur3Partitioner.LongToken(probes[i])));
+            }
+            report("skip-list replica walk", start, WALKS);
+            start = System.nanoTime();
+            for (int i = 0; i < WALKS; i++) {
+                blackhole += walk(ring.iterator(probes[i]));
+            }
+            report("token-ring replica walk", start, WALKS);
+
+            start = System.nanoTime();
+            for (Map.Entry<Partitioner.Token, InetAddress> entry : skipList.entrySet()) {
+                blackhole += entry.getValue().hashCode();
+            }
+            report("skip-list full iteration", start, skipList.size());
+            start = System.nanoTime();
+            for (int i = 0; i < ring.size(); i++) {
+                blackhole += ring.hostIndexAt(i);
+            }
+            report("token-ring full iteration", start, ring.size());
+        }
+        System.out.printf("(%d)%n", blackhole & 1);
+    }
+
+    private static ConcurrentSkipListMap<Partitioner.Token, InetAddress> buildSkipList(Map<InetAddress, long[]> peerTokens) {
+        ConcurrentSkipListMap<Partitioner.Token, InetAddress> skipList = new ConcurrentSkipListMap<Partitioner.Token, InetAddress>();
+        for (Map.Entry<InetAddress, long[]> entry : peerTokens.entrySet()) {
+            for (long token : entry.getValue()) {
+                skipList.put(new Partitioner.Murmur3Partitioner.LongToken(token), entry.getKey());
+            }
+        }
+        return skipList;
+    }
+
+    private static Iterator<Map.Entry<Partitioner.Token, InetAddress>> skipListIterator(ConcurrentSkipListMap<Partitioner.Token, InetAddress> skipList, Partitioner.Token start) {
+        Partitioner.Token startToken = skipList.ceilingKey(start);
+        if (startToken == null) {
+            startToken = skipList.firstKey();
+        }
+        final Iterator<Map.Entry<Partitioner.Token, InetAddress>> tail = skipList.tailMap(startToken).entrySet().iterator();
+        final Iterator<Map.Entry<Partitioner.Token, InetAddress>> head = skipList.headMap(startToken).entrySet().iterator();
+        return new Iterator<Map.Entry<Partitioner.Token, InetAddress>>() {
+
+            @Override
+            public boolean hasNext() {
+                return tail.hasNext() || head.hasNext();
+            }
+
+            @Override
+            public Map.Entry<Partitioner.Token, InetAddress> next() {
+                return tail.hasNext() ? tail.next() : head.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private static int walk(Iterator<Map.Entry<Partitioner.Token, InetAddress>> iterator) {
+        List<InetAddress> replicas = new ArrayList<InetAddress>(REPLICAS);
+        while (replicas.size() < REPLICAS && iterator.hasNext()) {
+            InetAddress endpoint = iterator.next().getValue();
+            if (!replicas.contains(endpoint)) {
+                replicas.add(endpoint);
+            }
+        }
+        return replicas.size();
+    }
+
+    private static void report(String name, long start, int operations) {
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("  %-26s %12.1f ns/op%n", name, (double)elapsed / operations);
+    }
+}